@@ -0,0 +1,81 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+import src.BulkImporter;
+import src.DatabaseHelper;
+import src.StudentManager;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A temporary SQLite database seeded with {@code students} students, each with marks in
+ * {@link #SUBJECTS} subjects and some attendance. Seeding goes through BulkImporter.
+ */
+@State(Scope.Benchmark)
+public class Cohort {
+    public static final String[] SUBJECTS = {
+            "Mathematics", "Physics", "Chemistry", "Biology", "English", "History", "Economics", "Computing"
+    };
+
+    @Param({"1000", "10000", "100000"})
+    public int students;
+
+    public DatabaseHelper db;
+    public StudentManager manager;
+    /** Snapshot file of the seeded cohort (see SnapshotFile). */
+    public Path snapshot;
+    private Path dir;
+
+    @Setup(Level.Trial)
+    public void seed() throws IOException, SQLException {
+        dir = Files.createTempDirectory("student-bench");
+        db = new DatabaseHelper("jdbc:sqlite:" + dir.resolve("bench.db"), 4);
+        manager = new StudentManager(db);
+        BulkImporter importer = new BulkImporter(db);
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < students; i++) {
+            sb.append("Student ").append(i).append(',').append(18 + i % 8).append(",BSc-")
+                    .append(i % 4).append(",R").append(i).append('\n');
+        }
+        importer.importFrom(new StringReader(sb.toString()), ',', BulkImporter.Kind.STUDENTS);
+
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        sb.setLength(0);
+        for (int i = 0; i < students; i++) {
+            for (String subject : SUBJECTS) {
+                sb.append('R').append(i).append(',').append(subject).append(',').append(rnd.nextInt(20, 101)).append('\n');
+            }
+        }
+        importer.importFrom(new StringReader(sb.toString()), ',', BulkImporter.Kind.MARKS);
+
+        sb.setLength(0);
+        for (int i = 0; i < students; i++) {
+            int total = rnd.nextInt(40, 61);
+            sb.append('R').append(i).append(',').append(rnd.nextInt(total / 2, total + 1)).append(',').append(total).append('\n');
+        }
+        importer.importFrom(new StringReader(sb.toString()), ',', BulkImporter.Kind.ATTENDANCE);
+        snapshot = dir.resolve("bench.snap");
+        db.writeSnapshot(snapshot);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException, SQLException {
+        manager.close();
+        db.close();
+        try (var files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) Files.deleteIfExists(p);
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    /** A random existing student id (ids are assigned 1..students by the import). */
+    public int randomId() {
+        return ThreadLocalRandom.current().nextInt(1, students + 1);
+    }
+}
@@ -0,0 +1,106 @@
+package bench;
+
+import src.BulkImporter;
+import src.ColumnarReader;
+import src.DataExporter;
+import src.ExportResult;
+import src.ImportResult;
+import src.Json;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * End-to-end throughput of the marks export in each format, of reading each file back, and of
+ * importing the marks again through BulkImporter, on a cohort with {@code rows} mark rows
+ * (students x 8 subjects). Each export is timed RUNS times after one warm-up and the best run is kept.
+ *
+ *   java -cp bench/target/benchmarks.jar bench.ExportThroughput [rows]
+ */
+public class ExportThroughput {
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Cohort cohort = new Cohort();
+        cohort.students = Math.max(1, rows / Cohort.SUBJECTS.length);
+        System.out.println("Seeding " + cohort.students + " students (" + cohort.students * Cohort.SUBJECTS.length + " mark rows)...");
+        cohort.seed();
+        Path dir = Files.createTempDirectory("student-export");
+        try {
+            System.out.printf("%-9s %10s %12s %9s %14s%n", "Format", "Size MB", "Export r/s", "MB/s", "Read-back r/s");
+            for (DataExporter.Format format : DataExporter.Format.values()) {
+                Path file = dir.resolve("marks." + switch (format) {
+                    case CSV -> "csv";
+                    case NDJSON -> "ndjson";
+                    case COLUMNAR -> "sscf";
+                });
+                DataExporter exporter = new DataExporter(cohort.db);
+                exporter.export(DataExporter.Dataset.MARKS, format, file);
+                ExportResult best = null;
+                for (int i = 0; i < RUNS; i++) {
+                    ExportResult r = exporter.export(DataExporter.Dataset.MARKS, format, file);
+                    if (best == null || r.getElapsedSeconds() < best.getElapsedSeconds()) best = r;
+                }
+                readBack(format, file);
+                long t0 = System.nanoTime();
+                long read = readBack(format, file);
+                double readSeconds = (System.nanoTime() - t0) / 1e9;
+                System.out.printf("%-9s %10.1f %12.0f %9.1f %14.0f%n", format, best.getBytes() / 1048576.0,
+                        best.getRowsPerSecond(), best.getMegabytesPerSecond(), read / readSeconds);
+            }
+
+            // Re-import the same marks (roll,subject,marks), so every row is an upsert onto an existing mark.
+            Path csv = dir.resolve("marks-import.csv");
+            try (InputStream in = Files.newInputStream(dir.resolve("marks.sscf"));
+                 ColumnarReader reader = new ColumnarReader(in);
+                 BufferedWriter out = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+                int roll = reader.indexOf("roll"), subject = reader.indexOf("subject"), marks = reader.indexOf("marks");
+                while (reader.next()) {
+                    out.write(reader.getString(roll) + ',' + reader.getString(subject) + ',' + reader.getDouble(marks));
+                    out.newLine();
+                }
+            }
+            ImportResult imported = new BulkImporter(cohort.db).importFile(csv, BulkImporter.Kind.MARKS);
+            System.out.printf("Import (BulkImporter, marks CSV): %d rows in %.2fs, %.0f rows/s (%d errors)%n",
+                    imported.getImported(), imported.getElapsedSeconds(), imported.getRowsPerSecond(), imported.getErrorCount());
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path p : (Iterable<Path>) files::iterator) Files.deleteIfExists(p);
+            }
+            Files.deleteIfExists(dir);
+            cohort.cleanUp();
+        }
+    }
+
+    /** Parses every row of an exported file the way a consumer would; returns the row count. */
+    private static long readBack(DataExporter.Format format, Path file) throws Exception {
+        long n = 0;
+        if (format == DataExporter.Format.COLUMNAR) {
+            try (InputStream in = Files.newInputStream(file); ColumnarReader reader = new ColumnarReader(in)) {
+                int marks = reader.indexOf("marks");
+                double sum = 0;
+                while (reader.next()) {
+                    sum += reader.getDouble(marks);
+                    n++;
+                }
+                if (sum < 0) throw new IllegalStateException();
+            }
+            return n;
+        }
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            if (format == DataExporter.Format.CSV) in.readLine();
+            while ((line = in.readLine()) != null) {
+                if (format == DataExporter.Format.NDJSON) Json.parseObject(line);
+                else Double.parseDouble(line.substring(line.lastIndexOf(',') + 1));
+                n++;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,135 @@
+package bench;
+
+import src.StudentServer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load test for StudentServer: N concurrent clients each send requests back to back
+ * for a fixed time, then throughput and latency percentiles are printed.
+ * The mix is 80% reads (student by id, top 10, name search) and 20% writes (attendance, marks).
+ *
+ *   java -cp bench/target/benchmarks.jar bench.LoadTest [clients] [seconds] [baseUrl] [students]
+ *
+ * Without a baseUrl an embedded server is started over a temporary cohort of {@code students}.
+ */
+public class LoadTest {
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        String baseUrl = args.length > 2 ? args[2] : null;
+        int students = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+
+        Cohort cohort = null;
+        StudentServer server = null;
+        if (baseUrl == null) {
+            cohort = new Cohort();
+            cohort.students = students;
+            System.out.println("Seeding " + students + " students...");
+            cohort.seed();
+            server = new StudentServer(cohort.manager, 0);
+            server.start();
+            baseUrl = "http://localhost:" + server.getPort();
+        }
+        try {
+            run(baseUrl, clients, seconds, students);
+        } finally {
+            if (server != null) server.close();
+            if (cohort != null) cohort.cleanUp();
+        }
+    }
+
+    private static void run(String baseUrl, int clients, int seconds, int students) throws Exception {
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        System.out.printf("Running %d clients for %ds against %s%n", clients, seconds, baseUrl);
+
+        ExecutorService pool = StudentServer.newRequestExecutor();
+        List<Future<long[]>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            results.add(pool.submit(() -> {
+                long[] latencies = new long[1024];
+                int n = 0;
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    HttpRequest request = nextRequest(baseUrl, rnd, students);
+                    long t0 = System.nanoTime();
+                    try {
+                        HttpResponse<Void> res = http.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (res.statusCode() >= 400) errors.incrementAndGet();
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    if (n == latencies.length) latencies = Arrays.copyOf(latencies, n * 2);
+                    latencies[n++] = System.nanoTime() - t0;
+                }
+                return Arrays.copyOf(latencies, n);
+            }));
+        }
+        List<long[]> parts = new ArrayList<>(clients);
+        int total = 0;
+        for (Future<long[]> f : results) {
+            long[] part = f.get();
+            parts.add(part);
+            total += part.length;
+        }
+        long[] all = new long[total];
+        int at = 0;
+        for (long[] part : parts) {
+            System.arraycopy(part, 0, all, at, part.length);
+            at += part.length;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        Arrays.sort(all);
+        System.out.printf("Requests: %d (%d errors) in %.1fs%n", all.length, errors.get(), elapsed);
+        System.out.printf("Throughput: %.0f req/s%n", all.length / elapsed);
+        System.out.printf("Latency ms: p50 %.2f | p90 %.2f | p99 %.2f | max %.2f%n",
+                percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99), percentile(all, 1.0));
+    }
+
+    private static HttpRequest nextRequest(String baseUrl, ThreadLocalRandom rnd, int students) {
+        int id = rnd.nextInt(1, students + 1);
+        int pick = rnd.nextInt(100);
+        HttpRequest.Builder b;
+        if (pick < 50) {
+            b = HttpRequest.newBuilder(URI.create(baseUrl + "/students/" + id)).GET();
+        } else if (pick < 65) {
+            b = HttpRequest.newBuilder(URI.create(baseUrl + "/ranking?top=10")).GET();
+        } else if (pick < 80) {
+            b = HttpRequest.newBuilder(URI.create(baseUrl + "/students?q=dent+" + rnd.nextInt(1000) + "&limit=10")).GET();
+        } else if (pick < 90) {
+            b = HttpRequest.newBuilder(URI.create(baseUrl + "/students/" + id + "/attendance"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"present\":1,\"total\":1}"));
+        } else {
+            String subject = Cohort.SUBJECTS[rnd.nextInt(Cohort.SUBJECTS.length)];
+            b = HttpRequest.newBuilder(URI.create(baseUrl + "/students/" + id + "/marks"))
+                    .PUT(HttpRequest.BodyPublishers.ofString(
+                            "{\"subject\":\"" + subject + "\",\"marks\":" + rnd.nextInt(0, 101) + "}"));
+        }
+        return b.timeout(Duration.ofSeconds(30)).build();
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0.0;
+        int idx = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(idx, sorted.length - 1))] / 1e6;
+    }
+}
@@ -0,0 +1,124 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import src.DataExporter;
+import src.Performance;
+import src.ResultCardWriter;
+import src.SnapshotFile;
+import src.Student;
+import src.SummaryStats;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of DatabaseHelper and StudentManager against a seeded cohort.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudentTrackerBenchmark {
+
+    @Benchmark
+    public List<Student> getRankedStudents(Cohort c) throws SQLException {
+        return c.db.getRankedStudents();
+    }
+
+    @Benchmark
+    public String buildSummaryReport(Cohort c) throws SQLException {
+        return c.manager.buildSummaryReport();
+    }
+
+    /** Same report over the in-memory snapshot; refresh is a version check when nothing changed. */
+    @Benchmark
+    public SummaryStats summaryFromSnapshot(Cohort c) throws SQLException {
+        return c.manager.getAnalytics().getSummaryStats();
+    }
+
+    /**
+     * Whole cohort in rank order through one reused Performance. Run with -prof gc:
+     * gc.alloc.rate.norm should stay flat as the students param grows.
+     */
+    @Benchmark
+    public void rankWithPerformance(Cohort c, Blackhole bh) throws SQLException {
+        c.manager.getAnalytics().forEachRanked((p, i) -> bh.consume(p.getGrade()));
+    }
+
+    @Benchmark
+    public void reportWithPerformance(Cohort c, Blackhole bh) throws SQLException {
+        c.manager.getAnalytics().forEachPerformance((p, i) -> {
+            bh.consume(p.getPercentage());
+            bh.consume(p.getSubjectCount());
+        });
+    }
+
+    @Benchmark
+    public Performance getPerformance(Cohort c) throws SQLException {
+        return c.manager.getPerformance(c.randomId());
+    }
+
+    /** What a fresh process pays for its first summary when a snapshot file exists (map, CRC check, one pass). */
+    @Benchmark
+    public SummaryStats summaryFromSnapshotFile(Cohort c) throws IOException {
+        return SnapshotFile.open(c.snapshot).getSummaryStats();
+    }
+
+    @Benchmark
+    public String buildResultCard(Cohort c) throws SQLException {
+        return c.manager.buildResultCard(c.randomId());
+    }
+
+    /** Whole-cohort export; compare with buildResultCard x students for the per-card path. */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long writeAllResultCards(Cohort c) throws SQLException, IOException {
+        return new ResultCardWriter(c.db, Runtime.getRuntime().availableProcessors()).writeAll(Writer.nullWriter());
+    }
+
+    /** Whole marks table (students x 8 rows) per export format. */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long exportMarksCsv(Cohort c) throws SQLException, IOException {
+        return new DataExporter(c.db).export(DataExporter.Dataset.MARKS, DataExporter.Format.CSV, OutputStream.nullOutputStream()).getRows();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long exportMarksNdjson(Cohort c) throws SQLException, IOException {
+        return new DataExporter(c.db).export(DataExporter.Dataset.MARKS, DataExporter.Format.NDJSON, OutputStream.nullOutputStream()).getRows();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long exportMarksColumnar(Cohort c) throws SQLException, IOException {
+        return new DataExporter(c.db).export(DataExporter.Dataset.MARKS, DataExporter.Format.COLUMNAR, OutputStream.nullOutputStream()).getRows();
+    }
+
+    @Benchmark
+    public void upsertMark(Cohort c) throws SQLException {
+        String subject = Cohort.SUBJECTS[ThreadLocalRandom.current().nextInt(Cohort.SUBJECTS.length)];
+        c.db.upsertMark(c.randomId(), subject, ThreadLocalRandom.current().nextInt(0, 101));
+    }
+
+    @Benchmark
+    public void addAttendance(Cohort c) throws SQLException {
+        c.db.addAttendance(c.randomId(), 1, 1);
+    }
+
+    @Benchmark
+    public List<Student> searchStudentsByName(Cohort c) throws SQLException {
+        return c.db.searchStudentsByName("dent " + ThreadLocalRandom.current().nextInt(100), 20);
+    }
+}
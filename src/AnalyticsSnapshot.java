@@ -0,0 +1,524 @@
+package src;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable, column-oriented copy of every student's figures, for analytics without per-row queries.
+ * Row i of each array belongs to ids[i] (ascending); marks are stored CSR-style, with student i's
+ * subjects and marks at [markOffsets[i], markOffsets[i + 1]).
+ *
+ * Aggregates run over the arrays with parallel streams; rankings sort an int[] of row indexes, and the
+ * forEachPerformance loops hand out one reused Performance, so neither allocates per student. refresh() compares the database's change
+ * version with the one this snapshot was built at and reloads only the students that changed.
+ *
+ * getChangeSeq() is the change log position the rows are known to include: it is read before the rows
+ * it vouches for, so a SnapshotFile stamped with it may hold newer rows than it claims, never older.
+ */
+public final class AnalyticsSnapshot {
+    private static final String[] GRADES = {"A+", "A", "B+", "B", "C", "F"};
+
+    private final StudentRepository db;
+    private final long version;
+    private final long changeSeq;
+    private final int size;
+    private final int[] ids;
+    private final String[] names;
+    private final int[] ages;
+    private final String[] courses;
+    private final String[] rolls;
+    private final double[] markTotals;
+    private final int[] markCounts;
+    private final double[] percentages;
+    private final int[] present;
+    private final int[] total;
+    private final int[] markOffsets;
+    private final int[] subjectIds;
+    private final double[] marks;
+    // Computed on first use; the snapshot never changes, so they stay valid for its lifetime.
+    private volatile SummaryStats summary;
+    private volatile int[] rankOrderCache;
+
+    private AnalyticsSnapshot(StudentRepository db, long version, long changeSeq, Builder b) {
+        this.db = db;
+        this.version = version;
+        this.changeSeq = changeSeq;
+        this.size = b.size;
+        this.ids = Arrays.copyOf(b.ids, size);
+        this.names = Arrays.copyOf(b.names, size);
+        this.ages = Arrays.copyOf(b.ages, size);
+        this.courses = Arrays.copyOf(b.courses, size);
+        this.rolls = Arrays.copyOf(b.rolls, size);
+        this.markTotals = Arrays.copyOf(b.markTotals, size);
+        this.markCounts = Arrays.copyOf(b.markCounts, size);
+        this.percentages = Arrays.copyOf(b.percentages, size);
+        this.present = Arrays.copyOf(b.present, size);
+        this.total = Arrays.copyOf(b.total, size);
+        this.markOffsets = Arrays.copyOf(b.markOffsets, size + 1);
+        this.subjectIds = Arrays.copyOf(b.subjectIds, b.markCount);
+        this.marks = Arrays.copyOf(b.marks, b.markCount);
+    }
+
+    // --- Loading ---
+    /** Reads every student, their marks and attendance in one read transaction. */
+    public static AnalyticsSnapshot load(StudentRepository db) throws SQLException {
+        long version = db.getChangeVersion();
+        long seq = db.getLastChangeSeq();   // read first: the rows can only be newer, never older
+        Builder b = new Builder(1024);
+        db.readSnapshotRows(null, b);
+        return new AnalyticsSnapshot(db, version, seq, b);
+    }
+
+    /**
+     * Returns this snapshot if nothing changed since it was built (neither the change tracker's version
+     * nor the change log's last seq moved, so one cheap query per call), otherwise a new one in which
+     * only the changed students were re-read: those the change tracker reports, plus any the change
+     * log shows after getChangeSeq() (writes from other processes among them). Falls back to a full
+     * load when either can no longer say which students changed.
+     */
+    public AnalyticsSnapshot refresh() throws SQLException {
+        long current = db.getChangeVersion();
+        long seq = db.getLastChangeSeq();
+        if (current == version && seq == changeSeq) return this;
+        int[] changed = db.getChangedStudentsSince(version);
+        int[] logged = changed == null ? null : changedSinceSeq(db, changeSeq, seq);
+        if (logged == null) return load(db);
+        return reload(IntStream.concat(Arrays.stream(changed), Arrays.stream(logged)).sorted().distinct().toArray(),
+                current, seq);
+    }
+
+    /**
+     * Starts from a snapshot file rather than reading every row: rows come from the file, and only
+     * students the change log shows as written since the file was saved are read from db. Falls back
+     * to load(db) if the file was written from another database or is newer than db, or the log no
+     * longer reaches back to it, or more than MAX_CATCH_UP students changed.
+     */
+    public static AnalyticsSnapshot load(StudentRepository db, SnapshotFile file) throws SQLException {
+        if (file.getDatabaseId() != db.getDatabaseId()) return load(db);
+        long version = db.getChangeVersion();
+        long seq = db.getLastChangeSeq();
+        if (seq < file.getChangeSeq()) return load(db);
+        int[] changed = changedSinceSeq(db, file.getChangeSeq(), seq);
+        if (changed == null) return load(db);
+        Builder b = new Builder(file.size());
+        file.readRows(b);
+        AnalyticsSnapshot base = new AnalyticsSnapshot(db, version, seq, b);
+        return changed.length == 0 ? base : base.reload(changed, version, seq);
+    }
+
+    private static final int MAX_CATCH_UP = 4096;
+
+    // Sorted ids of students in the change log after seq (through at least through), or null if that
+    // cannot be told cheaply.
+    private static int[] changedSinceSeq(StudentRepository db, long seq, long through) throws SQLException {
+        Set<Integer> ids = new TreeSet<>();
+        long after = seq;
+        while (true) {
+            List<ChangeEvent> batch = db.readChanges(after, 1000);
+            if (batch.isEmpty()) break;
+            if (batch.get(0).getSeq() != after + 1) return null;   // pruned
+            for (ChangeEvent e : batch) {
+                if (e.getEntity() == ChangeEvent.Entity.TERM) return null;   // every student's marks went
+                ids.add(e.getStudentId());
+            }
+            if (ids.size() > MAX_CATCH_UP) return null;
+            after = batch.get(batch.size() - 1).getSeq();
+        }
+        if (after < through) return null;   // pruned up to the end
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // A copy of this snapshot with the given (sorted) students re-read, stamped with newVersion and newSeq.
+    private AnalyticsSnapshot reload(int[] changed, long newVersion, long newSeq) throws SQLException {
+        Builder fresh = new Builder(changed.length);
+        db.readSnapshotRows(changed, fresh);
+        AnalyticsSnapshot updated = new AnalyticsSnapshot(db, newVersion, newSeq, fresh);
+
+        // Merge by id: unchanged rows come from this snapshot, changed ones from the re-read
+        // (a changed id missing there was deleted).
+        Builder merged = new Builder(size + updated.size);
+        int i = 0, j = 0, c = 0;
+        while (i < size || j < updated.size) {
+            int oldId = i < size ? ids[i] : Integer.MAX_VALUE;
+            int newId = j < updated.size ? updated.ids[j] : Integer.MAX_VALUE;
+            if (newId <= oldId) {
+                merged.copy(updated, j++);
+                if (newId == oldId) i++;
+                continue;
+            }
+            while (c < changed.length && changed[c] < oldId) c++;
+            if (c >= changed.length || changed[c] != oldId) merged.copy(this, i);
+            i++;
+        }
+        return new AnalyticsSnapshot(db, newVersion, newSeq, merged);
+    }
+
+    // --- Accessors ---
+    public long getVersion() { return version; }
+    /** Every change in the database's change log up to this seq is reflected in the rows. */
+    public long getChangeSeq() { return changeSeq; }
+    public long getDatabaseId() { return db.getDatabaseId(); }
+    public int size() { return size; }
+
+    /** Row index of a student id, or -1. */
+    public int indexOf(int studentId) {
+        int i = Arrays.binarySearch(ids, studentId);
+        return i < 0 ? -1 : i;
+    }
+
+    public int getId(int index) { return ids[index]; }
+    public String getName(int index) { return names[index]; }
+    public int getAge(int index) { return ages[index]; }
+    public String getCourse(int index) { return courses[index]; }
+    public String getRoll(int index) { return rolls[index]; }
+    public int getPresent(int index) { return present[index]; }
+    public int getTotal(int index) { return total[index]; }
+    public double getMarksTotal(int index) { return markTotals[index]; }
+    public int getSubjectCount(int index) { return markCounts[index]; }
+
+    public RankedStudent get(int index) {
+        Student s = new Student(ids[index], names[index], ages[index], courses[index], rolls[index]);
+        double pct = percentages[index];
+        return new RankedStudent(s, pct, Performance.calculateGrade(pct), present[index], total[index]);
+    }
+
+    /** Subject name -> mark for one row, ordered by subject name like DatabaseHelper.getMarksForStudent. */
+    public Map<String, Double> getMarks(int index) {
+        return getPerformance(index, newPerformance()).getMarks();
+    }
+
+    /** Fills reuse with one row's marks and returns it. */
+    public Performance getPerformance(int index, Performance reuse) {
+        int from = markOffsets[index];
+        reuse.set(subjectIds, marks, from, markOffsets[index + 1] - from, markTotals[index]);
+        return reuse;
+    }
+
+    /** An empty Performance that resolves subject names through this snapshot's repository. */
+    public Performance newPerformance() {
+        return new Performance(db::getSubjectName);
+    }
+
+    /** Up to pageSize rows with id greater than lastId, in id order (keyset paging over the snapshot). */
+    public List<RankedStudent> pageAfter(int lastId, int pageSize) {
+        int from = Arrays.binarySearch(ids, 0, size, lastId);
+        from = from < 0 ? -from - 1 : from + 1;
+        int to = (int) Math.min(size, (long) from + pageSize);
+        List<RankedStudent> page = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) page.add(get(i));
+        return page;
+    }
+
+    public void forEach(Consumer<RankedStudent> each) {
+        for (int i = 0; i < size; i++) each.accept(get(i));
+    }
+
+    /**
+     * Passes every row in id order as (performance, row index). The Performance is one instance
+     * refilled for each row, so read what is needed inside the callback instead of keeping it.
+     */
+    public void forEachPerformance(ObjIntConsumer<Performance> each) {
+        Performance p = newPerformance();
+        for (int i = 0; i < size; i++) each.accept(getPerformance(i, p), i);
+    }
+
+    /** Like forEachPerformance, in getRankings() order. */
+    public void forEachRanked(ObjIntConsumer<Performance> each) {
+        Performance p = newPerformance();
+        for (int i : rankOrder()) each.accept(getPerformance(i, p), i);
+    }
+
+    // --- Aggregates ---
+    public double getClassAverage() {
+        return size == 0 ? 0.0 : Arrays.stream(percentages).parallel().sum() / size;
+    }
+
+    public long getPassCount() {
+        return IntStream.range(0, size).parallel().filter(i -> percentages[i] >= 50.0).count();
+    }
+
+    public double getAverageAttendance() {
+        return size == 0 ? 0.0 : IntStream.range(0, size).parallel().mapToDouble(this::attendancePct).sum() / size;
+    }
+
+    /** Highest percentage; ties go to the lowest id, matching DatabaseHelper.getSummaryStats. */
+    public RankedStudent getHighestScorer() {
+        if (size == 0) return null;
+        int best = IntStream.range(0, size).parallel()
+                .reduce((a, b) -> percentages[b] > percentages[a] || (percentages[b] == percentages[a] && b < a) ? b : a)
+                .getAsInt();
+        return get(best);
+    }
+
+    /** Number of students per grade band, in the order A+, A, B+, B, C, F. */
+    public Map<String, Long> getGradeDistribution() {
+        long[] counts = IntStream.range(0, size).parallel().collect(
+                () -> new long[GRADES.length],
+                (acc, i) -> acc[gradeBand(percentages[i])]++,
+                (a, b) -> { for (int k = 0; k < a.length; k++) a[k] += b[k]; });
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (int k = 0; k < GRADES.length; k++) map.put(GRADES[k], counts[k]);
+        return map;
+    }
+
+    public SummaryStats getSummaryStats() {
+        SummaryStats s = summary;
+        if (s == null) {
+            s = size == 0
+                    ? new SummaryStats(0, 0.0, 0, null, 0.0)
+                    : new SummaryStats(size, getClassAverage(), getPassCount(), getHighestScorer(), getAverageAttendance());
+            summary = s;
+        }
+        return s;
+    }
+
+    /** Every student ranked by percentage desc, attendance desc, id asc (DatabaseHelper's order). */
+    public List<RankedStudent> getRankings() {
+        List<RankedStudent> list = new ArrayList<>(size);
+        for (int i : rankOrder()) list.add(get(i));
+        return list;
+    }
+
+    /** The first k of getRankings(), selected with per-thread bounded heaps instead of a full sort. */
+    public List<RankedStudent> getTopStudents(int k) {
+        if (k <= 0 || size == 0) return new ArrayList<>();
+        int n = Math.min(k, size);
+        int[] top = rankOrderCache;
+        if (top == null) {
+            top = IntStream.range(0, size).parallel()
+                    .collect(() -> new TopK(n, this::compareRank), TopK::offer, TopK::addAll)
+                    .sorted();
+        }
+        List<RankedStudent> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) list.add(get(top[i]));
+        return list;
+    }
+
+    /** Row indexes in rank order, sorted once per snapshot. */
+    private int[] rankOrder() {
+        int[] order = rankOrderCache;
+        if (order == null) {
+            order = new int[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            ForkJoinPool.commonPool().invoke(new SortTask(order, new int[size], 0, size, this::compareRank));
+            rankOrderCache = order;
+        }
+        return order;
+    }
+
+    /** Percentage desc, attendance desc, id asc. */
+    private int compareRank(int a, int b) {
+        int c = Double.compare(percentages[b], percentages[a]);
+        if (c == 0) c = Double.compare(attendancePct(b), attendancePct(a));
+        return c != 0 ? c : Integer.compare(ids[a], ids[b]);
+    }
+
+    /** Bounded max-heap (worst ranked at the root) of the best k rows offered, e.g. per stream thread. */
+    static final class TopK {
+        private final int[] rows;
+        private final IntComparator cmp;
+        private int count;
+
+        TopK(int k, IntComparator cmp) {
+            this.rows = new int[k];
+            this.cmp = cmp;
+        }
+
+        void offer(int i) {
+            if (count < rows.length) {
+                int c = count++;
+                rows[c] = i;
+                while (c > 0 && cmp.compare(rows[c], rows[(c - 1) / 2]) > 0) {
+                    swap(c, (c - 1) / 2);
+                    c = (c - 1) / 2;
+                }
+            } else if (cmp.compare(i, rows[0]) < 0) {
+                rows[0] = i;
+                for (int p = 0, c; (c = 2 * p + 1) < count; p = c) {
+                    if (c + 1 < count && cmp.compare(rows[c + 1], rows[c]) > 0) c++;
+                    if (cmp.compare(rows[c], rows[p]) <= 0) break;
+                    swap(c, p);
+                }
+            }
+        }
+
+        void addAll(TopK other) {
+            for (int j = 0; j < other.count; j++) offer(other.rows[j]);
+        }
+
+        /** The rows kept, best first. */
+        int[] sorted() {
+            int[] top = Arrays.copyOf(rows, count);
+            mergeSort(top, new int[count], 0, count, cmp);
+            return top;
+        }
+
+        private void swap(int a, int b) {
+            int t = rows[a];
+            rows[a] = rows[b];
+            rows[b] = t;
+        }
+    }
+
+    // --- Sorting row indexes without boxing ---
+    @FunctionalInterface
+    interface IntComparator {
+        int compare(int a, int b);
+    }
+
+    /** Stable merge sort of a[from, to), using tmp (same length as a) as scratch. */
+    private static void mergeSort(int[] a, int[] tmp, int from, int to, IntComparator cmp) {
+        if (to - from <= 32) {
+            for (int i = from + 1; i < to; i++) {
+                int v = a[i], j = i - 1;
+                for (; j >= from && cmp.compare(a[j], v) > 0; j--) a[j + 1] = a[j];
+                a[j + 1] = v;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(a, tmp, from, mid, cmp);
+        mergeSort(a, tmp, mid, to, cmp);
+        merge(a, tmp, from, mid, to, cmp);
+    }
+
+    private static void merge(int[] a, int[] tmp, int from, int mid, int to, IntComparator cmp) {
+        if (cmp.compare(a[mid - 1], a[mid]) <= 0) return;
+        System.arraycopy(a, from, tmp, from, to - from);
+        int i = from, j = mid, k = from;
+        while (i < mid && j < to) a[k++] = cmp.compare(tmp[j], tmp[i]) < 0 ? tmp[j++] : tmp[i++];
+        while (i < mid) a[k++] = tmp[i++];
+        while (j < to) a[k++] = tmp[j++];
+    }
+
+    /** mergeSort with the halves of large ranges sorted in parallel. */
+    private static final class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int SEQUENTIAL = 8192;
+        private final int[] a, tmp;
+        private final int from, to;
+        private final IntComparator cmp;
+
+        SortTask(int[] a, int[] tmp, int from, int to, IntComparator cmp) {
+            this.a = a;
+            this.tmp = tmp;
+            this.from = from;
+            this.to = to;
+            this.cmp = cmp;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL) {
+                mergeSort(a, tmp, from, to, cmp);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SortTask(a, tmp, from, mid, cmp), new SortTask(a, tmp, mid, to, cmp));
+            merge(a, tmp, from, mid, to, cmp);
+        }
+    }
+
+    private double attendancePct(int i) {
+        return total[i] == 0 ? 0.0 : present[i] * 100.0 / total[i];
+    }
+
+    private static int gradeBand(double pct) {
+        if (pct >= 90) return 0;
+        if (pct >= 80) return 1;
+        if (pct >= 70) return 2;
+        if (pct >= 60) return 3;
+        if (pct >= 50) return 4;
+        return 5;
+    }
+
+    /** Receives snapshot rows from StudentRepository.readSnapshotRows. */
+    public interface RowSink {
+        void student(int id, String name, int age, String course, String roll,
+                     double marksTotal, int subjects, double percentage, int present, int total);
+
+        /** A mark of the student passed to student() last. */
+        void mark(int subjectId, double mark);
+    }
+
+    /** Growable column buffers a snapshot is assembled in. */
+    private static final class Builder implements RowSink {
+        int size;
+        int markCount;
+        int[] ids, ages, markCounts, present, total, markOffsets, subjectIds;
+        String[] names, courses, rolls;
+        double[] markTotals, percentages, marks;
+
+        Builder(int capacity) {
+            capacity = Math.max(capacity, 16);
+            ids = new int[capacity];
+            ages = new int[capacity];
+            markCounts = new int[capacity];
+            present = new int[capacity];
+            total = new int[capacity];
+            names = new String[capacity];
+            courses = new String[capacity];
+            rolls = new String[capacity];
+            markTotals = new double[capacity];
+            percentages = new double[capacity];
+            markOffsets = new int[capacity + 1];
+            subjectIds = new int[capacity * 4];
+            marks = new double[capacity * 4];
+        }
+
+        @Override
+        public void student(int id, String name, int age, String course, String roll,
+                            double marksTotal, int subjects, double pct, int presentDays, int totalDays) {
+            if (size == ids.length) growRows();
+            ids[size] = id;
+            names[size] = name;
+            ages[size] = age;
+            courses[size] = course;
+            rolls[size] = roll;
+            markTotals[size] = marksTotal;
+            markCounts[size] = subjects;
+            percentages[size] = pct;
+            present[size] = presentDays;
+            total[size] = totalDays;
+            size++;
+            markOffsets[size] = markCount;
+        }
+
+        @Override
+        public void mark(int subjectId, double mark) {
+            if (markCount == marks.length) {
+                subjectIds = Arrays.copyOf(subjectIds, markCount * 2);
+                marks = Arrays.copyOf(marks, markCount * 2);
+            }
+            subjectIds[markCount] = subjectId;
+            marks[markCount++] = mark;
+            markOffsets[size] = markCount;
+        }
+
+        void copy(AnalyticsSnapshot s, int i) {
+            student(s.ids[i], s.names[i], s.ages[i], s.courses[i], s.rolls[i],
+                    s.markTotals[i], s.markCounts[i], s.percentages[i], s.present[i], s.total[i]);
+            for (int k = s.markOffsets[i]; k < s.markOffsets[i + 1]; k++) mark(s.subjectIds[k], s.marks[k]);
+        }
+
+        private void growRows() {
+            int n = ids.length * 2;
+            ids = Arrays.copyOf(ids, n);
+            ages = Arrays.copyOf(ages, n);
+            markCounts = Arrays.copyOf(markCounts, n);
+            present = Arrays.copyOf(present, n);
+            total = Arrays.copyOf(total, n);
+            names = Arrays.copyOf(names, n);
+            courses = Arrays.copyOf(courses, n);
+            rolls = Arrays.copyOf(rolls, n);
+            markTotals = Arrays.copyOf(markTotals, n);
+            percentages = Arrays.copyOf(percentages, n);
+            markOffsets = Arrays.copyOf(markOffsets, n + 1);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package src;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind buffer for attendance updates.
+ * Present/total deltas are coalesced per student in memory and written to the attendance table
+ * in one batched transaction once maxPending students are waiting or the flush interval passes.
+ * Reads add the pending delta to the stored counts, and close() flushes whatever is left.
+ * With writeThrough(), flushes run on a given writer thread instead of whichever thread asked.
+ */
+public class AttendanceBuffer implements AutoCloseable {
+    private static final int DEFAULT_MAX_PENDING = 1000;
+    private static final long DEFAULT_FLUSH_INTERVAL_MS = 2000;
+
+    private final StudentRepository db;
+    private final int maxPending;
+    private final ConcurrentHashMap<Integer, int[]> pending = new ConcurrentHashMap<>();
+    // Recording and reading share the lock; a flush takes it exclusively so no delta is seen twice or not at all.
+    private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+    private volatile boolean closed;
+    private volatile ExecutorService writer;
+    private volatile Thread writerThread;
+
+    public AttendanceBuffer(StudentRepository db) {
+        this(db, DEFAULT_MAX_PENDING, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+
+    public AttendanceBuffer(StudentRepository db, int maxPending, long flushIntervalMs) {
+        if (maxPending <= 0 || flushIntervalMs <= 0) {
+            throw new IllegalArgumentException("Buffer size and flush interval must be positive.");
+        }
+        this.db = db;
+        this.maxPending = maxPending;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "attendance-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void record(int studentId, int addPresent, int addTotal) {
+        flushLock.readLock().lock();
+        try {
+            if (closed) throw new IllegalStateException("Attendance buffer is closed.");
+            pending.compute(studentId, (id, delta) -> {
+                if (delta == null) return new int[]{addPresent, addTotal};
+                delta[0] += addPresent;
+                delta[1] += addTotal;
+                return delta;
+            });
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        if (pending.size() >= maxPending && flushQueued.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushQueued.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    /** Stored counts plus any delta still waiting to be flushed: {present, total}. */
+    public int[] getAttendance(int studentId) throws SQLException {
+        flushLock.readLock().lock();
+        try {
+            int[] at = db.getAttendance(studentId);
+            pending.computeIfPresent(studentId, (id, delta) -> {
+                at[0] += delta[0];
+                at[1] += delta[1];
+                return delta;
+            });
+            return at;
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    /** Drops any pending delta for a student, e.g. after the student was deleted. */
+    public void discard(int studentId) {
+        flushLock.readLock().lock();
+        try {
+            pending.remove(studentId);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    public int getPendingCount() { return pending.size(); }
+
+    /**
+     * Makes every later flush, the timer's included, run on writer, a single-thread executor that
+     * the caller also sends its own writes to; flush() waits for it there. Such a flush commits on its
+     * own rather than joining a transaction the calling thread has open. Once writer is shut down,
+     * flushes go back to running on the calling thread.
+     */
+    public void writeThrough(ExecutorService writer) {
+        try {
+            writerThread = writer.submit(Thread::currentThread).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Writer is not running.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while attaching the writer.", e);
+        }
+        this.writer = writer;
+    }
+
+    /** Writes all pending deltas in one transaction. On failure they stay pending. */
+    public void flush() throws SQLException {
+        if (pending.isEmpty()) return;
+        ExecutorService w = writer;
+        if (w == null || Thread.currentThread() == writerThread) {
+            flushHere();
+            return;
+        }
+        Future<?> done;
+        try {
+            done = w.submit(() -> {
+                flushHere();
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            flushHere();
+            return;
+        }
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the attendance flush.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sql) throw sql;
+            if (cause instanceof RuntimeException rt) throw rt;
+            if (cause instanceof Error err) throw err;
+            throw new SQLException(cause);
+        }
+    }
+
+    private void flushHere() throws SQLException {
+        if (pending.isEmpty()) return;
+        flushLock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) return;
+            Map<Integer, int[]> batch = new HashMap<>(pending);
+            pending.clear();
+            try {
+                db.addAttendanceBatch(batch);
+                // Flushed inside a caller's transaction: if that rolls back, the deltas are owed again.
+                db.onRollback(() -> restore(batch));
+            } catch (SQLException | RuntimeException e) {
+                pending.putAll(batch);
+                throw e;
+            }
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    private void restore(Map<Integer, int[]> batch) {
+        flushLock.readLock().lock();
+        try {
+            batch.forEach((id, d) -> pending.merge(id, d, (a, b) -> new int[]{a[0] + b[0], a[1] + b[1]}));
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException | RuntimeException e) {
+            // Deltas are kept and retried on the next tick; close() reports a persistent failure.
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) return;
+        flushLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
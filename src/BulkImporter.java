@@ -0,0 +1,252 @@
+package src;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Streams CSV/TSV files of students, marks or attendance into the database.
+ * The file is read line by line; valid rows are written with JDBC batches and committed once per chunk.
+ * Rows are checked with the same rules as StudentManager and rejected rows are reported per line.
+ *
+ * Expected columns (an optional header line is skipped):
+ *   STUDENTS   name, age, course, roll
+ *   MARKS      roll, subject, marks
+ *   ATTENDANCE roll, present, total   (added to the existing counts)
+ */
+public class BulkImporter {
+    public enum Kind { STUDENTS, MARKS, ATTENDANCE }
+
+    private static final int DEFAULT_CHUNK_SIZE = 5000;
+
+    private final DatabaseHelper db;
+    private final int chunkSize;
+
+    public BulkImporter(DatabaseHelper db) {
+        this(db, DEFAULT_CHUNK_SIZE);
+    }
+
+    public BulkImporter(DatabaseHelper db, int chunkSize) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("Chunk size must be positive.");
+        this.db = db;
+        this.chunkSize = chunkSize;
+    }
+
+    /** Imports a file; ".tsv" and ".tab" files are tab-separated, anything else comma-separated. */
+    public ImportResult importFile(Path file, Kind kind) throws IOException, SQLException {
+        String name = file.getFileName().toString().toLowerCase();
+        char delimiter = name.endsWith(".tsv") || name.endsWith(".tab") ? '\t' : ',';
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFrom(in, delimiter, kind);
+        }
+    }
+
+    public ImportResult importFrom(Reader in, char delimiter, Kind kind) throws IOException, SQLException {
+        long start = System.nanoTime();
+        ImportResult result = new ImportResult();
+        BufferedReader reader = in instanceof BufferedReader br ? br : new BufferedReader(in);
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        String line;
+        long lineNo = 0;
+        boolean first = true;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (lineNo == 1 && line.startsWith("\uFEFF")) line = line.substring(1);
+            if (line.isBlank()) continue;
+            List<String> fields = split(line, delimiter);
+            // The header, if any, is the first non-blank line.
+            if (first) {
+                first = false;
+                if (isHeader(fields, kind)) continue;
+            }
+            result.rowRead();
+            try {
+                chunk.add(parse(lineNo, fields, kind));
+            } catch (IllegalArgumentException e) {
+                result.error(lineNo, e.getMessage());
+            }
+            if (chunk.size() >= chunkSize) {
+                flush(chunk, kind, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) flush(chunk, kind, result);
+        result.elapsed(System.nanoTime() - start);
+        return result;
+    }
+
+    // --- Parsing ---
+    private record Row(long line, String text1, String text2, String text3, double num1, double num2) {}
+
+    private Row parse(long line, List<String> f, Kind kind) {
+        switch (kind) {
+            case STUDENTS -> {
+                expectColumns(f, 4);
+                String name = f.get(0), course = f.get(2), roll = f.get(3);
+                int age = parseInt(f.get(1), "Invalid age.");
+                StudentManager.validateBasicInfo(name, age, course, roll);
+                return new Row(line, name.trim(), course.trim(), roll.trim(), age, 0);
+            }
+            case MARKS -> {
+                expectColumns(f, 3);
+                String roll = f.get(0), subject = f.get(1);
+                double marks = parseDouble(f.get(2), "Invalid marks.");
+                if (roll.isBlank()) throw new IllegalArgumentException("Roll required.");
+                StudentManager.validateMark(subject, marks);
+                return new Row(line, roll.trim(), subject.trim(), null, marks, 0);
+            }
+            default -> {
+                expectColumns(f, 3);
+                String roll = f.get(0);
+                int present = parseInt(f.get(1), "Invalid present count.");
+                int total = parseInt(f.get(2), "Invalid total count.");
+                if (roll.isBlank()) throw new IllegalArgumentException("Roll required.");
+                StudentManager.validateAttendance(present, total);
+                return new Row(line, roll.trim(), null, null, present, total);
+            }
+        }
+    }
+
+    private static void expectColumns(List<String> f, int n) {
+        if (f.size() != n) throw new IllegalArgumentException("Expected " + n + " columns, got " + f.size() + ".");
+    }
+
+    private static int parseInt(String s, String error) {
+        try { return Integer.parseInt(s.trim()); }
+        catch (NumberFormatException e) { throw new IllegalArgumentException(error); }
+    }
+
+    private static double parseDouble(String s, String error) {
+        try { return Double.parseDouble(s.trim()); }
+        catch (NumberFormatException e) { throw new IllegalArgumentException(error); }
+    }
+
+    private static boolean isHeader(List<String> f, Kind kind) {
+        String first = f.isEmpty() ? "" : f.get(0).trim();
+        return first.equalsIgnoreCase(kind == Kind.STUDENTS ? "name" : "roll");
+    }
+
+    /** Splits one line, honouring double-quoted fields and "" escapes. */
+    static List<String> split(String line, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') { sb.append('"'); i++; }
+                else if (c == '"') quoted = false;
+                else sb.append(c);
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(sb.toString());
+                sb.setLength(0);
+            } else {
+                sb.append(c);
+            }
+        }
+        fields.add(sb.toString());
+        return fields;
+    }
+
+    // --- Writing ---
+    private void flush(List<Row> chunk, Kind kind, ImportResult result) throws SQLException {
+        // Resolved before the chunk transaction opens, so new subjects never wait on its write lock.
+        Map<String, Integer> subjectIds = kind == Kind.MARKS ? resolveSubjects(chunk) : null;
+        db.inTransaction(() -> {
+            try (Connection conn = db.getConnection()) {
+                switch (kind) {
+                    case STUDENTS -> writeStudents(conn, chunk, result);
+                    case MARKS -> writeMarks(conn, chunk, subjectIds, result);
+                    case ATTENDANCE -> writeAttendance(conn, chunk, result);
+                }
+            }
+            db.recordBulkChange();
+        });
+    }
+
+    private void writeStudents(Connection conn, List<Row> chunk, ImportResult result) throws SQLException {
+        String ins = "INSERT INTO students(name, age, course, roll) VALUES(?, ?, ?, ?) ON CONFLICT(roll) DO NOTHING";
+        String att = "INSERT OR IGNORE INTO attendance(student_id, present, total) SELECT id, 0, 0 FROM students WHERE roll=?";
+        int[] counts;
+        try (PreparedStatement ps = conn.prepareStatement(ins)) {
+            for (Row r : chunk) {
+                ps.setString(1, r.text1());
+                ps.setInt(2, (int) r.num1());
+                ps.setString(3, r.text2());
+                ps.setString(4, r.text3());
+                ps.addBatch();
+            }
+            counts = ps.executeBatch();
+        }
+        try (PreparedStatement ps = conn.prepareStatement(att)) {
+            for (int i = 0; i < chunk.size(); i++) {
+                if (counts[i] > 0) {
+                    ps.setString(1, chunk.get(i).text3());
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+        report(chunk, counts, "Roll already exists.", result);
+    }
+
+    private void writeMarks(Connection conn, List<Row> chunk, Map<String, Integer> subjectIds,
+                            ImportResult result) throws SQLException {
+        String upsert = """
+            INSERT INTO marks(student_id, subject_id, marks)
+            SELECT id, ?, ? FROM students WHERE roll=?
+            ON CONFLICT(student_id, subject_id) DO UPDATE SET marks=excluded.marks
+        """;
+        try (PreparedStatement ps = conn.prepareStatement(upsert)) {
+            for (Row r : chunk) {
+                ps.setInt(1, subjectIds.get(r.text2()));
+                ps.setDouble(2, r.num1());
+                ps.setString(3, r.text1());
+                ps.addBatch();
+            }
+            report(chunk, ps.executeBatch(), "Unknown roll.", result);
+        }
+    }
+
+    // Subject ids are resolved once per chunk rather than once per row.
+    private Map<String, Integer> resolveSubjects(List<Row> chunk) throws SQLException {
+        Map<String, Integer> ids = new HashMap<>();
+        for (Row r : chunk) {
+            if (!ids.containsKey(r.text2())) ids.put(r.text2(), db.ensureSubject(r.text2()));
+        }
+        return ids;
+    }
+
+    private void writeAttendance(Connection conn, List<Row> chunk, ImportResult result) throws SQLException {
+        String sql = """
+            UPDATE attendance
+            SET present = present + ?, total = total + ?
+            WHERE student_id = (SELECT id FROM students WHERE roll = ?)
+        """;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Row r : chunk) {
+                ps.setInt(1, (int) r.num1());
+                ps.setInt(2, (int) r.num2());
+                ps.setString(3, r.text1());
+                ps.addBatch();
+            }
+            report(chunk, ps.executeBatch(), "Unknown roll.", result);
+        }
+    }
+
+    private static void report(List<Row> chunk, int[] counts, String failure, ImportResult result) {
+        long ok = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) ok++;
+            else result.error(chunk.get(i).line(), failure);
+        }
+        result.imported(ok);
+    }
+}
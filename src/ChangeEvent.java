@@ -0,0 +1,61 @@
+package src;
+
+/**
+ * One committed write from the change log. seq numbers are assigned in commit order, start at 1
+ * and have no holes, so a consumer that remembers the last seq it handled can resume exactly there.
+ *
+ * STUDENT events carry only the id (read the row if you need it). MARK events carry the subject and
+ * the mark written, or the mark removed for DELETE. ATTENDANCE events carry the counts after the update.
+ * A TERM INSERT event (student id 0) records a closeTerm: every mark of the open term was archived and
+ * removed at once, without a MARK event each; listTerms() has the new term.
+ */
+public class ChangeEvent {
+    public enum Entity { STUDENT, MARK, ATTENDANCE, TERM }
+    public enum Op { INSERT, UPDATE, DELETE }
+
+    private final long seq;
+    private final Entity entity;
+    private final Op op;
+    private final int studentId;
+    private final int subjectId;
+    private final double mark;
+    private final int present;
+    private final int total;
+    private final long changedAt;
+
+    public ChangeEvent(long seq, Entity entity, Op op, int studentId, int subjectId,
+                       double mark, int present, int total, long changedAt) {
+        this.seq = seq;
+        this.entity = entity;
+        this.op = op;
+        this.studentId = studentId;
+        this.subjectId = subjectId;
+        this.mark = mark;
+        this.present = present;
+        this.total = total;
+        this.changedAt = changedAt;
+    }
+
+    public long getSeq() { return seq; }
+    public Entity getEntity() { return entity; }
+    public Op getOp() { return op; }
+    public int getStudentId() { return studentId; }
+    /** Subject of a MARK event, 0 otherwise. */
+    public int getSubjectId() { return subjectId; }
+    public double getMark() { return mark; }
+    public int getPresent() { return present; }
+    public int getTotal() { return total; }
+    /** Epoch milliseconds of the write. */
+    public long getChangedAt() { return changedAt; }
+
+    @Override
+    public String toString() {
+        String detail = switch (entity) {
+            case STUDENT -> "";
+            case MARK -> ", Subject=" + subjectId + ", Mark=" + mark;
+            case ATTENDANCE -> ", Present=" + present + ", Total=" + total;
+            case TERM -> "";
+        };
+        return "ChangeEvent{Seq=" + seq + ", " + entity + " " + op + ", Student=" + studentId + detail + "}";
+    }
+}
@@ -0,0 +1,99 @@
+package src;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Tails the change log from an offset (the seq of the last event already handled; 0 for the start of
+ * the log). poll() delivers everything committed since, in seq order, and advances the offset past
+ * each event once its handler returns, so a handler that throws sees that event again next time.
+ * follow() polls on a background thread for consumers that just want to be kept up to date.
+ *
+ * If the events after the offset were pruned the consumer has missed changes; poll() then throws
+ * IllegalStateException and the consumer should rebuild from a full read and restart at
+ * StudentRepository.getLastChangeSeq().
+ */
+public class ChangeFeed implements AutoCloseable {
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final StudentRepository db;
+    private final int batchSize;
+    private volatile long offset;
+    private ScheduledExecutorService poller;
+
+    public ChangeFeed(StudentRepository db, long offset) {
+        this(db, offset, DEFAULT_BATCH_SIZE);
+    }
+
+    public ChangeFeed(StudentRepository db, long offset, int batchSize) {
+        if (offset < 0) throw new IllegalArgumentException("Offset cannot be negative.");
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive.");
+        this.db = db;
+        this.offset = offset;
+        this.batchSize = batchSize;
+    }
+
+    public long getOffset() { return offset; }
+
+    /** Hands every change committed after the offset to handler; returns how many there were. */
+    public synchronized int poll(Consumer<ChangeEvent> handler) throws SQLException {
+        int delivered = 0;
+        while (true) {
+            List<ChangeEvent> batch = db.readChanges(offset, batchSize);
+            if (batch.isEmpty()) return delivered;
+            long first = batch.get(0).getSeq();
+            // Seqs start at 1, so this also catches a consumer starting from 0 on a pruned log.
+            if (first != offset + 1) {
+                throw new IllegalStateException("Change log was pruned past offset " + offset
+                        + " (oldest remaining change is " + first + ").");
+            }
+            for (ChangeEvent e : batch) {
+                handler.accept(e);
+                offset = e.getSeq();
+                delivered++;
+            }
+            if (batch.size() < batchSize) return delivered;
+        }
+    }
+
+    /**
+     * Polls every periodMs on a daemon thread until close(). Errors (including handler failures)
+     * are passed to onError and the next tick retries from the same offset.
+     */
+    public synchronized void follow(Consumer<ChangeEvent> handler, long periodMs, Consumer<Exception> onError) {
+        if (periodMs <= 0) throw new IllegalArgumentException("Poll period must be positive.");
+        if (poller != null) throw new IllegalStateException("Change feed is already being followed.");
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "change-feed");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                poll(handler);
+            } catch (SQLException | RuntimeException e) {
+                onError.accept(e);
+            }
+        }, 0, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService p;
+        synchronized (this) {
+            p = poller;
+            poller = null;
+        }
+        if (p == null) return;
+        p.shutdown();
+        try {
+            p.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
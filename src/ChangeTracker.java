@@ -0,0 +1,67 @@
+package src;
+
+import java.util.Arrays;
+
+/**
+ * Monotonic change counter for the student data, plus a bounded ring of which students changed.
+ * DatabaseHelper bumps it after each committed write; readers remember the version they loaded at
+ * and later ask which students changed since then, so they can reload just those rows.
+ */
+public class ChangeTracker {
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    private final long[] versions;
+    private final int[] studentIds;
+    private long version;
+    private long resetVersion;   // changes up to here are not itemised (bulk writes)
+    private int next;
+    private int size;
+
+    public ChangeTracker() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ChangeTracker(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive.");
+        this.versions = new long[capacity];
+        this.studentIds = new int[capacity];
+    }
+
+    public synchronized long getVersion() { return version; }
+
+    /** Records that one student's row, marks or attendance changed. */
+    public synchronized void record(int studentId) {
+        version++;
+        versions[next] = version;
+        studentIds[next] = studentId;
+        next = (next + 1) % versions.length;
+        if (size < versions.length) size++;
+    }
+
+    /** Records a change that touched an unknown set of students; readers must reload everything. */
+    public synchronized void recordAll() {
+        version++;
+        resetVersion = version;
+    }
+
+    /**
+     * Distinct ids (sorted) of students changed after the given version, or null when that can no
+     * longer be answered because the ring wrapped or a bulk change happened in between.
+     */
+    public synchronized int[] changedSince(long since) {
+        if (since >= version) return new int[0];
+        if (since < resetVersion) return null;
+        long oldest = size == 0 ? version + 1 : versions[(next - size + versions.length) % versions.length];
+        if (since < oldest - 1) return null;
+        int[] ids = new int[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            int slot = (next - 1 - i + versions.length) % versions.length;
+            if (versions[slot] <= since) break;
+            ids[n++] = studentIds[slot];
+        }
+        int[] changed = Arrays.copyOf(ids, n);
+        Arrays.sort(changed);
+        return Arrays.stream(changed).distinct().toArray();
+    }
+}
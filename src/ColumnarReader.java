@@ -0,0 +1,132 @@
+package src;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads files written by ColumnarWriter one row group at a time:
+ * call next() to move to each row, then the getters for its columns.
+ */
+public class ColumnarReader implements AutoCloseable {
+    private final DataInputStream in;
+    private final String[] names;
+    private final ColumnarWriter.Type[] types;
+    private long[][] longs;
+    private double[][] doubles;
+    private String[][] strings;
+    private int rows;
+    private int row = -1;
+    private long totalRows;
+    private boolean ended;
+
+    public ColumnarReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 64 * 1024));
+        checkMagic();
+        int version = this.in.readUnsignedByte();
+        if (version != ColumnarWriter.VERSION) throw new IOException("Unsupported columnar file version " + version + ".");
+        int columns = (int) varint();
+        names = new String[columns];
+        types = new ColumnarWriter.Type[columns];
+        for (int c = 0; c < columns; c++) {
+            names[c] = string();
+            int type = this.in.readUnsignedByte();
+            if (type >= ColumnarWriter.Type.values().length) throw new IOException("Unknown column type " + type + ".");
+            types[c] = ColumnarWriter.Type.values()[type];
+        }
+    }
+
+    public String[] getColumnNames() { return names.clone(); }
+    public ColumnarWriter.Type[] getColumnTypes() { return types.clone(); }
+    public int indexOf(String column) { return Arrays.asList(names).indexOf(column); }
+
+    /** Total rows as recorded in the footer; only known once next() has returned false. */
+    public long getTotalRows() { return totalRows; }
+
+    public boolean next() throws IOException {
+        if (++row < rows) return true;
+        if (ended) return false;
+        int n = (int) varint();
+        if (n == 0) {
+            ended = true;
+            totalRows = Long.reverseBytes(in.readLong());
+            checkMagic();
+            return false;
+        }
+        readGroup(n);
+        row = 0;
+        return true;
+    }
+
+    public long getLong(int column) { return longs[column][row]; }
+    public double getDouble(int column) { return doubles[column][row]; }
+    public String getString(int column) { return strings[column][row]; }
+
+    private void readGroup(int n) throws IOException {
+        rows = n;
+        if (longs == null || longs.length != types.length) {
+            longs = new long[types.length][];
+            doubles = new double[types.length][];
+            strings = new String[types.length][];
+        }
+        for (int c = 0; c < types.length; c++) {
+            int encoding = in.readUnsignedByte();
+            varint();   // chunk length; lets other readers skip columns, not needed here
+            switch (types[c]) {
+                case INT64 -> {
+                    long[] col = longs[c] = longs[c] == null || longs[c].length < n ? new long[n] : longs[c];
+                    long prev = 0;
+                    for (int r = 0; r < n; r++) {
+                        long z = varint();
+                        prev += (z >>> 1) ^ -(z & 1);
+                        col[r] = prev;
+                    }
+                }
+                case FLOAT64 -> {
+                    double[] col = doubles[c] = doubles[c] == null || doubles[c].length < n ? new double[n] : doubles[c];
+                    for (int r = 0; r < n; r++) col[r] = Double.longBitsToDouble(Long.reverseBytes(in.readLong()));
+                }
+                case STRING -> {
+                    String[] col = strings[c] = strings[c] == null || strings[c].length < n ? new String[n] : strings[c];
+                    if (encoding == 1) {
+                        String[] dictionary = new String[(int) varint()];
+                        for (int i = 0; i < dictionary.length; i++) dictionary[i] = string();
+                        for (int r = 0; r < n; r++) col[r] = dictionary[(int) varint()];
+                    } else {
+                        for (int r = 0; r < n; r++) col[r] = string();
+                    }
+                }
+            }
+        }
+    }
+
+    private void checkMagic() throws IOException {
+        byte[] magic = new byte[ColumnarWriter.MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, ColumnarWriter.MAGIC)) throw new IOException("Not a columnar export file.");
+    }
+
+    private long varint() throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+    private String string() throws IOException {
+        byte[] b = new byte[(int) varint()];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,199 @@
+package src;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a compact, Parquet-style columnar file. Rows are buffered into row groups; each group is
+ * written column by column, so memory is bounded by the row-group size, not the table size.
+ *
+ * Layout (varint = unsigned LEB128, zigzag for signed deltas):
+ *   file     := "SSCF" u8:version varint:columns (string:name u8:type)* group* end
+ *   group    := varint:rows (> 0) chunk[columns]
+ *   chunk    := u8:encoding varint:byteLength bytes
+ *                 INT64   0 = zigzag varint deltas from the previous row (first from 0)
+ *                 FLOAT64 0 = 8-byte little-endian IEEE 754 per row
+ *                 STRING  0 = plain (varint length + UTF-8 per row)
+ *                         1 = dictionary (varint size, entries as plain, varint index per row)
+ *   end      := varint:0 u64le:totalRows "SSCF"
+ * Values are never null; a null string is written as "".
+ */
+public class ColumnarWriter implements AutoCloseable {
+    public enum Type { INT64, FLOAT64, STRING }
+
+    static final byte[] MAGIC = "SSCF".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    public static final int DEFAULT_ROW_GROUP_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+    private final Type[] types;
+    private final int groupSize;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final String[][] strings;
+    private final Buffer chunk = new Buffer();
+    private final Buffer header = new Buffer();
+    private int rows;
+    private long totalRows;
+    private boolean finished;
+
+    public ColumnarWriter(OutputStream out, String[] names, Type[] types) throws IOException {
+        this(out, names, types, DEFAULT_ROW_GROUP_SIZE);
+    }
+
+    public ColumnarWriter(OutputStream out, String[] names, Type[] types, int rowGroupSize) throws IOException {
+        if (names.length != types.length) throw new IllegalArgumentException("One type per column is required.");
+        if (rowGroupSize <= 0) throw new IllegalArgumentException("Row group size must be positive.");
+        this.out = out;
+        this.types = types.clone();
+        this.groupSize = rowGroupSize;
+        this.longs = new long[types.length][];
+        this.doubles = new double[types.length][];
+        this.strings = new String[types.length][];
+        for (int c = 0; c < types.length; c++) {
+            switch (types[c]) {
+                case INT64 -> longs[c] = new long[rowGroupSize];
+                case FLOAT64 -> doubles[c] = new double[rowGroupSize];
+                case STRING -> strings[c] = new String[rowGroupSize];
+            }
+        }
+        header.bytes(MAGIC).u8(VERSION).varint(names.length);
+        for (int c = 0; c < names.length; c++) header.string(names[c]).u8(types[c].ordinal());
+        header.writeTo(out);
+    }
+
+    public void setLong(int column, long value) { longs[column][rows] = value; }
+    public void setDouble(int column, double value) { doubles[column][rows] = value; }
+    public void setString(int column, String value) { strings[column][rows] = value == null ? "" : value; }
+
+    /** Completes the current row; a full row group is written out. */
+    public void endRow() throws IOException {
+        rows++;
+        totalRows++;
+        if (rows == groupSize) writeGroup();
+    }
+
+    public long getRowCount() { return totalRows; }
+
+    private void writeGroup() throws IOException {
+        if (rows == 0) return;
+        header.reset();
+        header.varint(rows).writeTo(out);
+        for (int c = 0; c < types.length; c++) {
+            chunk.reset();
+            int encoding = 0;
+            switch (types[c]) {
+                case INT64 -> {
+                    long prev = 0;
+                    for (int r = 0; r < rows; r++) {
+                        long v = longs[c][r];
+                        chunk.zigzag(v - prev);
+                        prev = v;
+                    }
+                }
+                case FLOAT64 -> {
+                    for (int r = 0; r < rows; r++) chunk.u64le(Double.doubleToRawLongBits(doubles[c][r]));
+                }
+                case STRING -> encoding = encodeStrings(strings[c]);
+            }
+            header.reset();
+            header.u8(encoding).varint(chunk.size).writeTo(out);
+            chunk.writeTo(out);
+        }
+        for (String[] column : strings) if (column != null) Arrays.fill(column, 0, rows, null);
+        rows = 0;
+    }
+
+    /** Dictionary-encodes a column when it repeats a lot (courses, subjects), else writes it plain. */
+    private int encodeStrings(String[] values) {
+        Map<String, Integer> dictionary = new HashMap<>();
+        for (int r = 0; r < rows && dictionary.size() <= rows / 4; r++) dictionary.putIfAbsent(values[r], dictionary.size());
+        if (dictionary.size() > rows / 4) {
+            for (int r = 0; r < rows; r++) chunk.string(values[r]);
+            return 0;
+        }
+        String[] entries = new String[dictionary.size()];
+        dictionary.forEach((s, i) -> entries[i] = s);
+        chunk.varint(entries.length);
+        for (String s : entries) chunk.string(s);
+        for (int r = 0; r < rows; r++) chunk.varint(dictionary.get(values[r]));
+        return 1;
+    }
+
+    /** Writes the last row group and the footer, and flushes; the stream stays open. */
+    public void finish() throws IOException {
+        if (finished) return;
+        finished = true;
+        writeGroup();
+        header.reset();
+        header.varint(0).u64le(totalRows).bytes(MAGIC).writeTo(out);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    /** Growable byte buffer with the encodings used above. */
+    private static final class Buffer {
+        private byte[] data = new byte[8192];
+        private int size;
+
+        private void ensure(int extra) {
+            if (size + extra > data.length) data = Arrays.copyOf(data, Math.max(data.length * 2, size + extra));
+        }
+
+        Buffer u8(int v) {
+            ensure(1);
+            data[size++] = (byte) v;
+            return this;
+        }
+
+        Buffer varint(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                data[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            data[size++] = (byte) v;
+            return this;
+        }
+
+        Buffer zigzag(long v) {
+            return varint((v << 1) ^ (v >> 63));
+        }
+
+        Buffer u64le(long v) {
+            ensure(8);
+            for (int i = 0; i < 8; i++) data[size++] = (byte) (v >>> (8 * i));
+            return this;
+        }
+
+        Buffer bytes(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, data, size, b.length);
+            size += b.length;
+            return this;
+        }
+
+        Buffer string(String s) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            return varint(b.length).bytes(b);
+        }
+
+        void reset() { size = 0; }
+
+        void writeTo(OutputStream out) throws IOException {
+            out.write(data, 0, size);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package src;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lightweight JDBC connection pool with a per-connection prepared statement cache.
+ * Borrowed connections are proxies: close() returns them to the pool, and closing a cached
+ * statement only clears its parameters so the next caller with the same SQL reuses it.
+ * While DbMetrics is enabled, statements and result sets are wrapped to time and count them.
+ */
+public class ConnectionPool implements AutoCloseable {
+    /** Runs once on every new physical connection, e.g. to apply PRAGMAs. */
+    @FunctionalInterface
+    public interface ConnectionInitializer {
+        void initialize(Connection conn) throws SQLException;
+    }
+
+    private static final int STATEMENT_CACHE_SIZE = 32;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long BORROW_TIMEOUT_MS = 30_000;
+
+    private final String url;
+    private final int maxSize;
+    private final ConnectionInitializer initializer;
+    private final DbMetrics metrics;
+    private final BlockingQueue<PooledConnection> idle = new LinkedBlockingQueue<>();
+    private final Semaphore permits;
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, int maxSize) {
+        this(url, maxSize, conn -> { });
+    }
+
+    public ConnectionPool(String url, int maxSize, ConnectionInitializer initializer) {
+        this(url, maxSize, initializer, new DbMetrics());
+    }
+
+    public ConnectionPool(String url, int maxSize, ConnectionInitializer initializer, DbMetrics metrics) {
+        if (maxSize <= 0) throw new IllegalArgumentException("Pool size must be positive.");
+        this.url = url;
+        this.maxSize = maxSize;
+        this.initializer = initializer;
+        this.metrics = metrics;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public int getMaxSize() { return maxSize; }
+    public DbMetrics getMetrics() { return metrics; }
+
+    public Connection borrow() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed.");
+        boolean traced = metrics.isEnabled();
+        long start = traced ? System.nanoTime() : 0L;
+        try {
+            if (!permits.tryAcquire(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out waiting for a database connection.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a database connection.", e);
+        }
+        try {
+            PooledConnection pc;
+            while ((pc = idle.poll()) != null) {
+                if (pc.isUsable()) break;
+                pc.destroy();
+            }
+            if (pc == null) pc = new PooledConnection(open());
+            return pc.lease(traced ? metrics.borrowed(System.nanoTime() - start) : null);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private Connection open() throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        metrics.connectionOpened();
+        try {
+            initializer.initialize(conn);
+            return conn;
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    private void release(PooledConnection pc) {
+        try {
+            if (closed || pc.physical.isClosed()) {
+                pc.destroy();
+            } else {
+                if (!pc.physical.getAutoCommit()) {
+                    pc.physical.rollback();
+                    pc.physical.setAutoCommit(true);
+                }
+                idle.offer(pc);
+            }
+        } catch (SQLException e) {
+            pc.destroy();
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection pc;
+        while ((pc = idle.poll()) != null) pc.destroy();
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** A physical connection plus the statements prepared on it. */
+    private final class PooledConnection {
+        private final Connection physical;
+        private final Map<String, CachedStatement> statements =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                        if (size() <= STATEMENT_CACHE_SIZE || eldest.getValue().inUse) return false;
+                        eldest.getValue().closeQuietly();
+                        return true;
+                    }
+                };
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        boolean isUsable() {
+            try {
+                return !physical.isClosed() && physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        Connection lease(DbMetrics.Stats operation) {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new LeaseHandler(this, operation));
+        }
+
+        PreparedStatement prepare(String sql, Object[] args, Method method) throws Throwable {
+            String key = args.length == 1 ? sql : sql + '\u0000' + args[1];
+            CachedStatement cached = statements.get(key);
+            if (cached != null && cached.inUse) {
+                return (PreparedStatement) invoke(physical, method, args);
+            }
+            if (cached == null) {
+                cached = new CachedStatement((PreparedStatement) invoke(physical, method, args));
+                statements.put(key, cached);
+            }
+            cached.inUse = true;
+            return cached.proxy;
+        }
+
+        void destroy() {
+            for (CachedStatement cs : statements.values()) cs.closeQuietly();
+            statements.clear();
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+                // already unusable
+            }
+        }
+    }
+
+    /** Handler behind one borrow of a pooled connection. */
+    private final class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pc;
+        private final DbMetrics.Stats operation;   // null unless metrics were on at borrow time
+        private final long leasedAt;
+        private boolean released;
+
+        LeaseHandler(PooledConnection pc, DbMetrics.Stats operation) {
+            this.pc = pc;
+            this.operation = operation;
+            this.leasedAt = operation == null ? 0L : System.nanoTime();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                if (!released) {
+                    released = true;
+                    if (operation != null) operation.recordCall(System.nanoTime() - leasedAt);
+                    release(pc);
+                }
+                return null;
+            }
+            if (name.equals("isClosed")) return released || pc.physical.isClosed();
+            if (released) throw new SQLException("Connection already returned to the pool.");
+            Object result = name.equals("prepareStatement") && isCacheable(args)
+                    ? pc.prepare((String) args[0], args, method)
+                    : ConnectionPool.invoke(pc.physical, method, args);
+            if (operation != null && result instanceof Statement st) {
+                String sql = name.equals("prepareStatement") ? (String) args[0] : null;
+                return trace(st, sql, operation);
+            }
+            return result;
+        }
+
+        // prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys)
+        private boolean isCacheable(Object[] args) {
+            return args.length == 1 || (args.length == 2 && args[1] instanceof Integer);
+        }
+    }
+
+    // --- Tracing (only while metrics are enabled) ---
+    private Statement trace(Statement target, String sql, DbMetrics.Stats operation) {
+        Class<?> type = target instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{type},
+                (p, method, args) -> {
+                    if (!method.getName().startsWith("execute")) return invoke(target, method, args);
+                    String text = sql != null ? sql : args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                    DbMetrics.Stats query = text == null ? null : metrics.query(text);
+                    long start = System.nanoTime();
+                    Object result = invoke(target, method, args);
+                    long elapsed = System.nanoTime() - start;
+                    operation.addStatement();
+                    if (query != null) {
+                        query.recordCall(elapsed);
+                        query.addStatement();
+                    }
+                    long changed = rowCount(result);
+                    if (changed > 0) {
+                        operation.addRows(changed);
+                        if (query != null) query.addRows(changed);
+                    }
+                    return result instanceof ResultSet rs ? countRows(rs, operation, query) : result;
+                });
+    }
+
+    private static long rowCount(Object result) {
+        if (result instanceof Integer n) return Math.max(0, n);
+        if (result instanceof Long n) return Math.max(0, n);
+        long sum = 0;
+        if (result instanceof int[] batch) for (int n : batch) sum += Math.max(0, n);
+        if (result instanceof long[] batch) for (long n : batch) sum += Math.max(0, n);
+        return sum;
+    }
+
+    private static ResultSet countRows(ResultSet target, DbMetrics.Stats operation, DbMetrics.Stats query) {
+        return (ResultSet) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (p, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                        operation.addRows(1);
+                        if (query != null) query.addRows(1);
+                    }
+                    return result;
+                });
+    }
+
+    /** A prepared statement kept open across borrows; close() only resets it. */
+    private static final class CachedStatement {
+        private final PreparedStatement physical;
+        private final PreparedStatement proxy;
+        private boolean inUse;
+
+        CachedStatement(PreparedStatement physical) {
+            this.physical = physical;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    (p, method, args) -> {
+                        String name = method.getName();
+                        if (name.equals("close")) {
+                            if (inUse) {
+                                inUse = false;
+                                physical.clearParameters();
+                                physical.clearBatch();
+                            }
+                            return null;
+                        }
+                        if (name.equals("isClosed")) return !inUse || physical.isClosed();
+                        return ConnectionPool.invoke(physical, method, args);
+                    });
+        }
+
+        void closeQuietly() {
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+                // statement is discarded either way
+            }
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package src;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+import static src.ColumnarWriter.Type.FLOAT64;
+import static src.ColumnarWriter.Type.INT64;
+import static src.ColumnarWriter.Type.STRING;
+
+/**
+ * Streams students or marks out of any StudentRepository as CSV, newline-delimited JSON or the
+ * columnar format of ColumnarWriter. Rows come from StudentRepository.readSnapshotRows (one
+ * consistent state, students in id order, each student's marks in subject id order) and go straight
+ * to the output through a reused buffer, so memory use does not depend on the table size.
+ */
+public class DataExporter {
+    public enum Dataset {
+        STUDENTS(new String[]{"id", "name", "age", "course", "roll", "present", "total"},
+                new ColumnarWriter.Type[]{INT64, STRING, INT64, STRING, STRING, INT64, INT64}),
+        MARKS(new String[]{"student_id", "roll", "subject", "marks"},
+                new ColumnarWriter.Type[]{INT64, STRING, STRING, FLOAT64});
+
+        private final String[] columns;
+        private final ColumnarWriter.Type[] types;
+
+        Dataset(String[] columns, ColumnarWriter.Type[] types) {
+            this.columns = columns;
+            this.types = types;
+        }
+    }
+
+    public enum Format {
+        CSV, NDJSON, COLUMNAR;
+
+        /** .csv, .ndjson/.jsonl or .sscf (anything else is rejected). */
+        public static Format forFile(Path file) {
+            String name = file.getFileName().toString().toLowerCase();
+            if (name.endsWith(".csv")) return CSV;
+            if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) return NDJSON;
+            if (name.endsWith(".sscf")) return COLUMNAR;
+            throw new IllegalArgumentException("Unknown export format for " + file.getFileName() + " (use .csv, .ndjson or .sscf).");
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final StudentRepository db;
+
+    public DataExporter(StudentRepository db) {
+        this.db = db;
+    }
+
+    public ExportResult export(Dataset dataset, Path file) throws SQLException, IOException {
+        return export(dataset, Format.forFile(file), file);
+    }
+
+    public ExportResult export(Dataset dataset, Format format, Path file) throws SQLException, IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            return export(dataset, format, out);
+        }
+    }
+
+    /** Writes the dataset to out, which is flushed but not closed. */
+    public ExportResult export(Dataset dataset, Format format, OutputStream out) throws SQLException, IOException {
+        long start = System.nanoTime();
+        CountingStream counted = new CountingStream(out);
+        BufferedOutputStream buffered = new BufferedOutputStream(counted, BUFFER_SIZE);
+        RowSink sink = format == Format.COLUMNAR
+                ? new ColumnarSink(new ColumnarWriter(buffered, dataset.columns, dataset.types))
+                : new TextSink(buffered, format, dataset.columns);
+        long[] rows = new long[1];
+        try {
+            db.readSnapshotRows(null, new AnalyticsSnapshot.RowSink() {
+                private int studentId;
+                private String roll;
+
+                @Override
+                public void student(int id, String name, int age, String course, String roll,
+                                    double marksTotal, int subjects, double percentage, int present, int total) {
+                    studentId = id;
+                    this.roll = roll;
+                    if (dataset != Dataset.STUDENTS) return;
+                    sink.setLong(0, id);
+                    sink.setString(1, name);
+                    sink.setLong(2, age);
+                    sink.setString(3, course);
+                    sink.setString(4, roll);
+                    sink.setLong(5, present);
+                    sink.setLong(6, total);
+                    endRow();
+                }
+
+                @Override
+                public void mark(int subjectId, double mark) {
+                    if (dataset != Dataset.MARKS) return;
+                    String subject = db.getSubjectName(subjectId);
+                    sink.setLong(0, studentId);
+                    sink.setString(1, roll);
+                    sink.setString(2, subject != null ? subject : "#" + subjectId);
+                    sink.setDouble(3, mark);
+                    endRow();
+                }
+
+                private void endRow() {
+                    try {
+                        sink.endRow();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    rows[0]++;
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        sink.finish();
+        buffered.flush();
+        return new ExportResult(rows[0], counted.count, System.nanoTime() - start);
+    }
+
+    // --- Sinks ---
+    // Columns of a row are set in order, then endRow() writes it.
+    private interface RowSink {
+        void setLong(int column, long value);
+        void setDouble(int column, double value);
+        void setString(int column, String value);
+        void endRow() throws IOException;
+        void finish() throws IOException;
+    }
+
+    /** CSV (RFC 4180 quoting, header line) or one JSON object per line. */
+    private static final class TextSink implements RowSink {
+        private static final int FLUSH_AT = 32 * 1024;
+
+        private final Writer out;
+        private final boolean csv;
+        private final String[] columns;
+        private final StringBuilder sb = new StringBuilder(FLUSH_AT + 1024);
+        private char[] chars = new char[FLUSH_AT + 1024];
+
+        TextSink(OutputStream out, Format format, String[] columns) {
+            this.out = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            this.csv = format == Format.CSV;
+            this.columns = columns;
+            if (csv) sb.append(String.join(",", columns)).append('\n');
+        }
+
+        // Separator and, for JSON, the key before a column's value.
+        private void next(int column) {
+            if (column == 0) {
+                if (!csv) sb.append('{');
+            } else {
+                sb.append(',');
+            }
+            if (!csv) {
+                Json.quote(sb, columns[column]);
+                sb.append(':');
+            }
+        }
+
+        @Override
+        public void setLong(int column, long value) {
+            next(column);
+            sb.append(value);
+        }
+
+        @Override
+        public void setDouble(int column, double value) {
+            next(column);
+            sb.append(value);
+        }
+
+        @Override
+        public void setString(int column, String value) {
+            next(column);
+            if (value == null) sb.append(csv ? "" : "null");
+            else if (csv) csvField(value);
+            else Json.quote(sb, value);
+        }
+
+        @Override
+        public void endRow() throws IOException {
+            sb.append(csv ? "\n" : "}\n");
+            if (sb.length() >= FLUSH_AT) drain();
+        }
+
+        private void csvField(String v) {
+            boolean quote = false;
+            for (int i = 0; i < v.length() && !quote; i++) {
+                char ch = v.charAt(i);
+                quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+            }
+            if (!quote) {
+                sb.append(v);
+                return;
+            }
+            sb.append('"');
+            for (int i = 0; i < v.length(); i++) {
+                char ch = v.charAt(i);
+                if (ch == '"') sb.append('"');
+                sb.append(ch);
+            }
+            sb.append('"');
+        }
+
+        private void drain() throws IOException {
+            int len = sb.length();
+            if (chars.length < len) chars = new char[len];
+            sb.getChars(0, len, chars, 0);
+            out.write(chars, 0, len);
+            sb.setLength(0);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            drain();
+            out.flush();
+        }
+    }
+
+    private static final class ColumnarSink implements RowSink {
+        private final ColumnarWriter writer;
+
+        ColumnarSink(ColumnarWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void setLong(int column, long value) { writer.setLong(column, value); }
+
+        @Override
+        public void setDouble(int column, double value) { writer.setDouble(column, value); }
+
+        @Override
+        public void setString(int column, String value) { writer.setString(column, value); }
+
+        @Override
+        public void endRow() throws IOException { writer.endRow(); }
+
+        @Override
+        public void finish() throws IOException {
+            writer.finish();
+        }
+    }
+
+    /** Counts the bytes that reach the underlying stream. */
+    private static final class CountingStream extends FilterOutputStream {
+        private long count;
+
+        CountingStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -1,87 +1,501 @@
+package src;
+
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Handles SQLite connectivity, schema creation, and CRUD queries.
+ * Connections come from a small pool; call close() on shutdown to release them.
  */
-public class DatabaseHelper {
+public class DatabaseHelper implements StudentRepository {
     private static final String DB_URL = "jdbc:sqlite:students.db";
+    private static final int DEFAULT_POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static final AtomicInteger IN_MEMORY_DATABASES = new AtomicInteger();
+
+    // Per-student percentage and attendance, one row per student; callers append ORDER BY/LIMIT.
+    private static final String PERFORMANCE_SELECT = """
+        SELECT s.id, s.name, s.age, s.course, s.roll,
+               COALESCE(p.percentage, 0.0) AS pct,
+               COALESCE(p.grade, 'F') AS grade,
+               COALESCE(a.present, 0) AS present,
+               COALESCE(a.total, 0) AS total,
+               CASE WHEN COALESCE(a.total, 0) = 0 THEN 0.0
+                    ELSE a.present * 100.0 / a.total END AS att_pct
+        FROM students s
+        LEFT JOIN student_performance p ON p.student_id = s.id
+        LEFT JOIN attendance a ON a.student_id = s.id
+    """;
+    private static final String RANK_ORDER = " ORDER BY pct DESC, att_pct DESC, s.id ASC";
+
+    private final ConnectionPool pool;
+    private final DbMetrics metrics = new DbMetrics();
+    private final SubjectDictionary subjects = new SubjectDictionary();
+    private final ChangeTracker changes = new ChangeTracker();
+    private final ThreadLocal<Transaction> transaction = new ThreadLocal<>();
+    // Holds a shared-cache in-memory database open for the helper's lifetime, even while the pool
+    // replaces its connection; null for file databases.
+    private final Connection keepAlive;
+    private final long databaseId;
 
     public DatabaseHelper() {
-        try (Connection conn = getConnection()) {
-            createSchema(conn);
+        this(DB_URL, DEFAULT_POOL_SIZE);
+    }
+
+    public DatabaseHelper(String url, int poolSize) {
+        this.pool = new ConnectionPool(url, poolSize, DatabaseHelper::configureConnection, metrics);
+        Connection anchor = null;
+        long id;
+        try {
+            if (url.contains("mode=memory")) anchor = DriverManager.getConnection(url);
+            try (Connection conn = getConnection()) {
+                migrate(conn);
+                subjects.load(conn);
+                id = readDatabaseId(conn);
+            }
         } catch (SQLException e) {
+            pool.close();
+            closeQuietly(anchor);
             throw new RuntimeException("DB init failed: " + e.getMessage(), e);
         }
+        this.keepAlive = anchor;
+        this.databaseId = id;
+    }
+
+    /**
+     * A private SQLite database held in memory (shared cache, so pooled connections all see it) and
+     * discarded on close(): same engine and SQL as a file, without the disk I/O or the file left behind.
+     * The pool has a single connection because shared-cache tables lock with SQLITE_LOCKED, which
+     * busy_timeout does not retry; callers take turns instead of failing.
+     */
+    public static DatabaseHelper inMemory() {
+        return new DatabaseHelper("jdbc:sqlite:file:students-mem-" + IN_MEMORY_DATABASES.incrementAndGet()
+                + "?mode=memory&cache=shared", 1);
     }
 
+    private static void closeQuietly(Connection conn) {
+        if (conn == null) return;
+        try {
+            conn.close();
+        } catch (SQLException ignored) {
+            // nothing left to release
+        }
+    }
+
+    /** A pooled connection, or the current transaction's connection when called inside inTransaction. */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL);
+        Transaction tx = transaction.get();
+        return tx != null ? tx.connection() : pool.borrow();
+    }
+
+    // --- Transactions ---
+    /**
+     * Runs work as one write transaction: every DatabaseHelper call it makes on this thread uses the
+     * same connection and the whole unit commits once. A nested call joins the outer transaction; if it
+     * throws, the outer one rolls back even if the exception is caught. afterCommit hooks run only once
+     * the outermost transaction has committed.
+     */
+    public <T> T inTransaction(Work<T> work) throws SQLException {
+        Transaction tx = transaction.get();
+        if (tx != null) {
+            try {
+                return work.run();
+            } catch (SQLException | RuntimeException | Error e) {
+                tx.markRollbackOnly();
+                throw e;
+            }
+        }
+        T result;
+        try (Connection conn = pool.borrow()) {
+            tx = new Transaction(conn);
+            tx.begin();
+            transaction.set(tx);
+            try {
+                result = work.run();
+                if (tx.isRollbackOnly()) throw new SQLException("Transaction rolled back by an inner step.");
+                transaction.remove();
+                tx.commit();
+            } catch (SQLException | RuntimeException | Error e) {
+                transaction.remove();
+                tx.rollback(e);
+                throw e;
+            }
+        }
+        // Committed: a hook that throws is reported to the caller, but nothing is rolled back or undone,
+        // and the connection is back in the pool so hooks can use the database.
+        tx.runAfterCommit();
+        return result;
+    }
+
+    public void afterCommit(Runnable action) {
+        Transaction tx = transaction.get();
+        if (tx != null) tx.afterCommit(action);
+        else action.run();
+    }
+
+    public void onRollback(Runnable action) {
+        Transaction tx = transaction.get();
+        if (tx != null) tx.onRollback(action);
+    }
+
+    public boolean isInTransaction() { return transaction.get() != null; }
+
+    /** Per-operation query metrics; off by default (see DbMetrics). */
+    public DbMetrics getMetrics() { return metrics; }
+
+    @Override
+    public void close() {
+        pool.close();
+        closeQuietly(keepAlive);
+    }
+
+    // --- Change tracking ---
+    // Every write below records the students it touched once it has committed (see AnalyticsSnapshot);
+    // inside a transaction that means after the outermost commit, so a refresh never misses a row.
+    public long getChangeVersion() { return changes.getVersion(); }
+
+    /** Sorted ids of students changed after the given version, or null if a full reload is needed. */
+    public int[] getChangedStudentsSince(long version) { return changes.changedSince(version); }
+
+    /** For writers that bypass the methods here (e.g. BulkImporter): marks all students as changed. */
+    void recordBulkChange() { afterCommit(changes::recordAll); }
+
+    private void recordChange(int studentId) { afterCommit(() -> changes.record(studentId)); }
+
+    // --- Change log ---
+    public List<ChangeEvent> readChanges(long afterSeq, int limit) throws SQLException {
+        if (limit <= 0) throw new IllegalArgumentException("Limit must be positive.");
+        String sql = """
+            SELECT seq, entity, op, student_id, subject_id, mark, present, total, changed_at
+            FROM change_log WHERE seq > ? ORDER BY seq LIMIT ?
+        """;
+        List<ChangeEvent> events = new ArrayList<>(Math.min(limit, 1024));
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, afterSeq);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    events.add(new ChangeEvent(rs.getLong(1),
+                            ChangeEvent.Entity.valueOf(rs.getString(2)), ChangeEvent.Op.valueOf(rs.getString(3)),
+                            rs.getInt(4), rs.getInt(5), rs.getDouble(6), rs.getInt(7), rs.getInt(8), rs.getLong(9)));
+                }
+            }
+        }
+        return events;
+    }
+
+    // sqlite_sequence keeps the high-water mark even after every row was pruned.
+    public long getLastChangeSeq() throws SQLException {
+        try (Connection conn = getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT seq FROM sqlite_sequence WHERE name = 'change_log'")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
     }
 
-    private void createSchema(Connection conn) throws SQLException {
+    public int pruneChanges(long throughSeq) throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement("DELETE FROM change_log WHERE seq <= ?")) {
+            ps.setLong(1, throughSeq);
+            return ps.executeUpdate();
+        }
+    }
+
+    public long getDatabaseId() { return databaseId; }
+
+    private static long readDatabaseId(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT value FROM meta WHERE key = 'database_id'")) {
+            if (!rs.next()) throw new SQLException("Database has no id (meta.database_id is missing).");
+            return rs.getLong(1);
+        }
+    }
+
+    // --- Schema ---
+    // MIGRATIONS[i] upgrades a database from version i to i + 1; PRAGMA user_version records the version reached.
+    private static final String[][] MIGRATIONS = {
+        {
+            """
+            CREATE TABLE IF NOT EXISTS students(
+              id INTEGER PRIMARY KEY AUTOINCREMENT,
+              name TEXT NOT NULL,
+              age INTEGER NOT NULL,
+              course TEXT NOT NULL,
+              roll TEXT NOT NULL UNIQUE
+            );
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS subjects(
+              id INTEGER PRIMARY KEY AUTOINCREMENT,
+              name TEXT NOT NULL UNIQUE
+            );
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS marks(
+              id INTEGER PRIMARY KEY AUTOINCREMENT,
+              student_id INTEGER NOT NULL,
+              subject_id INTEGER NOT NULL,
+              marks REAL NOT NULL,
+              UNIQUE(student_id, subject_id),
+              FOREIGN KEY(student_id) REFERENCES students(id) ON DELETE CASCADE,
+              FOREIGN KEY(subject_id) REFERENCES subjects(id) ON DELETE CASCADE
+            );
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS attendance(
+              id INTEGER PRIMARY KEY AUTOINCREMENT,
+              student_id INTEGER NOT NULL UNIQUE,
+              present INTEGER NOT NULL DEFAULT 0,
+              total INTEGER NOT NULL DEFAULT 0,
+              FOREIGN KEY(student_id) REFERENCES students(id) ON DELETE CASCADE
+            );
+            """,
+            // Databases from before foreign keys were enforced may hold marks and attendance of deleted
+            // students or subjects; drop them so every later step starts from consistent data.
+            "DELETE FROM marks WHERE student_id NOT IN (SELECT id FROM students) OR subject_id NOT IN (SELECT id FROM subjects)",
+            "DELETE FROM attendance WHERE student_id NOT IN (SELECT id FROM students)"
+        },
+        {
+            // Lets per-student aggregates over marks run from the index alone.
+            "CREATE INDEX IF NOT EXISTS idx_marks_student_subject_marks ON marks(student_id, subject_id, marks)",
+            "CREATE INDEX IF NOT EXISTS idx_students_course ON students(course)",
+            "CREATE INDEX IF NOT EXISTS idx_students_name_nocase ON students(name COLLATE NOCASE)"
+        },
+        {
+            // Trigram full-text index over names, kept in sync with students by triggers.
+            """
+            CREATE VIRTUAL TABLE IF NOT EXISTS students_fts
+            USING fts5(name, content='students', content_rowid='id', tokenize='trigram')
+            """,
+            """
+            CREATE TRIGGER IF NOT EXISTS students_fts_insert AFTER INSERT ON students BEGIN
+              INSERT INTO students_fts(rowid, name) VALUES (new.id, new.name);
+            END
+            """,
+            """
+            CREATE TRIGGER IF NOT EXISTS students_fts_delete AFTER DELETE ON students BEGIN
+              INSERT INTO students_fts(students_fts, rowid, name) VALUES ('delete', old.id, old.name);
+            END
+            """,
+            """
+            CREATE TRIGGER IF NOT EXISTS students_fts_update AFTER UPDATE OF name ON students BEGIN
+              INSERT INTO students_fts(students_fts, rowid, name) VALUES ('delete', old.id, old.name);
+              INSERT INTO students_fts(rowid, name) VALUES (new.id, new.name);
+            END
+            """,
+            "INSERT INTO students_fts(students_fts) VALUES ('rebuild')"
+        },
+        {
+            // Per-student marks aggregate. Triggers refresh one student's row whenever their marks change,
+            // inside the writing statement's transaction; percentage and grade follow from total/subjects.
+            """
+            CREATE TABLE IF NOT EXISTS student_performance(
+              student_id INTEGER PRIMARY KEY,
+              total REAL NOT NULL DEFAULT 0,
+              subjects INTEGER NOT NULL DEFAULT 0,
+              percentage REAL GENERATED ALWAYS AS
+                (CASE WHEN subjects = 0 THEN 0.0 ELSE total / subjects END) STORED,
+              grade TEXT GENERATED ALWAYS AS
+                (CASE WHEN percentage >= 90 THEN 'A+'
+                      WHEN percentage >= 80 THEN 'A'
+                      WHEN percentage >= 70 THEN 'B+'
+                      WHEN percentage >= 60 THEN 'B'
+                      WHEN percentage >= 50 THEN 'C'
+                      ELSE 'F' END) STORED,
+              FOREIGN KEY(student_id) REFERENCES students(id) ON DELETE CASCADE
+            );
+            """,
+            """
+            CREATE TRIGGER IF NOT EXISTS marks_perf_insert AFTER INSERT ON marks BEGIN
+              INSERT INTO student_performance(student_id, total, subjects)
+              SELECT new.student_id, SUM(marks), COUNT(*) FROM marks WHERE student_id = new.student_id
+              ON CONFLICT(student_id) DO UPDATE SET total = excluded.total, subjects = excluded.subjects;
+            END
+            """,
+            """
+            CREATE TRIGGER IF NOT EXISTS marks_perf_update AFTER UPDATE OF marks ON marks BEGIN
+              UPDATE student_performance
+              SET total = (SELECT SUM(marks) FROM marks WHERE student_id = new.student_id)
+              WHERE student_id = new.student_id;
+            END
+            """,
+            // UPDATE rather than upsert: during a student delete the parent row is already gone.
+            """
+            CREATE TRIGGER IF NOT EXISTS marks_perf_delete AFTER DELETE ON marks BEGIN
+              UPDATE student_performance
+              SET total = (SELECT COALESCE(SUM(marks), 0) FROM marks WHERE student_id = old.student_id),
+                  subjects = (SELECT COUNT(*) FROM marks WHERE student_id = old.student_id)
+              WHERE student_id = old.student_id;
+            END
+            """,
+            """
+            INSERT OR REPLACE INTO student_performance(student_id, total, subjects)
+            SELECT student_id, SUM(marks), COUNT(*) FROM marks GROUP BY student_id
+            """
+        },
+        {
+            // Per-subject statistics read each subject's marks in sorted order straight off this index.
+            "CREATE INDEX IF NOT EXISTS idx_marks_subject_marks ON marks(subject_id, marks)"
+        },
+        {
+            // Append-only change log, written by triggers in the same transaction as the change, so it
+            // also covers BulkImporter and any other writer. AUTOINCREMENT keeps seq from being reused
+            // after pruning. The empty attendance row created with a student, and its removal on delete,
+            // are implied by the STUDENT events and not logged separately.
+            """
+            CREATE TABLE IF NOT EXISTS change_log(
+              seq INTEGER PRIMARY KEY AUTOINCREMENT,
+              entity TEXT NOT NULL,
+              op TEXT NOT NULL,
+              student_id INTEGER NOT NULL,
+              subject_id INTEGER,
+              mark REAL,
+              present INTEGER,
+              total INTEGER,
+              changed_at INTEGER NOT NULL DEFAULT (CAST(unixepoch('subsec') * 1000 AS INTEGER))
+            )
+            """,
+            """
+            CREATE TRIGGER IF NOT EXISTS students_log_insert AFTER INSERT ON students BEGIN
+              INSERT INTO change_log(entity, op, student_id) VALUES ('STUDENT', 'INSERT', new.id);
+            END
+            """,
+            """
+            CREATE TRIGGER IF NOT EXISTS students_log_update AFTER UPDATE ON students BEGIN
+              INSERT INTO change_log(entity, op, student_id) VALUES ('STUDENT', 'UPDATE', new.id);
+            END
+            """,
+            """
+            CREATE TRIGGER IF NOT EXISTS students_log_delete AFTER DELETE ON students BEGIN
+              INSERT INTO change_log(entity, op, student_id) VALUES ('STUDENT', 'DELETE', old.id);
+            END
+            """,
+            """
+            CREATE TRIGGER IF NOT EXISTS marks_log_insert AFTER INSERT ON marks BEGIN
+              INSERT INTO change_log(entity, op, student_id, subject_id, mark)
+              VALUES ('MARK', 'INSERT', new.student_id, new.subject_id, new.marks);
+            END
+            """,
+            """
+            CREATE TRIGGER IF NOT EXISTS marks_log_update AFTER UPDATE OF marks ON marks BEGIN
+              INSERT INTO change_log(entity, op, student_id, subject_id, mark)
+              VALUES ('MARK', 'UPDATE', new.student_id, new.subject_id, new.marks);
+            END
+            """,
+            """
+            CREATE TRIGGER IF NOT EXISTS marks_log_delete AFTER DELETE ON marks BEGIN
+              INSERT INTO change_log(entity, op, student_id, subject_id, mark)
+              VALUES ('MARK', 'DELETE', old.student_id, old.subject_id, old.marks);
+            END
+            """,
+            """
+            CREATE TRIGGER IF NOT EXISTS attendance_log_update AFTER UPDATE ON attendance BEGIN
+              INSERT INTO change_log(entity, op, student_id, present, total)
+              VALUES ('ATTENDANCE', 'UPDATE', new.student_id, new.present, new.total);
+            END
+            """
+        },
+        {
+            // Closed academic terms. Each one's marks move to their own marks_term_<id> table when it is
+            // closed (see closeTerm), so the live marks table only ever holds the open term; term_performance
+            // keeps every closed term's per-student totals for trend queries that never open the archives.
+            """
+            CREATE TABLE IF NOT EXISTS terms(
+              id INTEGER PRIMARY KEY AUTOINCREMENT,
+              name TEXT NOT NULL UNIQUE,
+              closed_at INTEGER NOT NULL
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS term_performance(
+              student_id INTEGER NOT NULL,
+              term_id INTEGER NOT NULL,
+              total REAL NOT NULL,
+              subjects INTEGER NOT NULL,
+              PRIMARY KEY(student_id, term_id),
+              FOREIGN KEY(student_id) REFERENCES students(id) ON DELETE CASCADE,
+              FOREIGN KEY(term_id) REFERENCES terms(id)
+            ) WITHOUT ROWID
+            """,
+            "CREATE INDEX IF NOT EXISTS idx_term_performance_term ON term_performance(term_id, student_id, total, subjects)"
+        },
+        {
+            // Per-database settings. database_id is drawn once, when the database is created or first
+            // upgraded, and tells this database apart from any other file that reuses its path.
+            "CREATE TABLE IF NOT EXISTS meta(key TEXT PRIMARY KEY, value NOT NULL) WITHOUT ROWID",
+            "INSERT OR IGNORE INTO meta(key, value) VALUES ('database_id', random())"
+        }
+    };
+
+    public static final int SCHEMA_VERSION = MIGRATIONS.length;
+
+    private static void configureConnection(Connection conn) throws SQLException {
         try (Statement st = conn.createStatement()) {
-            st.execute("""
-                CREATE TABLE IF NOT EXISTS students(
-                  id INTEGER PRIMARY KEY AUTOINCREMENT,
-                  name TEXT NOT NULL,
-                  age INTEGER NOT NULL,
-                  course TEXT NOT NULL,
-                  roll TEXT NOT NULL UNIQUE
-                );
-            """);
-
-            st.execute("""
-                CREATE TABLE IF NOT EXISTS subjects(
-                  id INTEGER PRIMARY KEY AUTOINCREMENT,
-                  name TEXT NOT NULL UNIQUE
-                );
-            """);
-
-            st.execute("""
-                CREATE TABLE IF NOT EXISTS marks(
-                  id INTEGER PRIMARY KEY AUTOINCREMENT,
-                  student_id INTEGER NOT NULL,
-                  subject_id INTEGER NOT NULL,
-                  marks REAL NOT NULL,
-                  UNIQUE(student_id, subject_id),
-                  FOREIGN KEY(student_id) REFERENCES students(id) ON DELETE CASCADE,
-                  FOREIGN KEY(subject_id) REFERENCES subjects(id) ON DELETE CASCADE
-                );
-            """);
-
-            st.execute("""
-                CREATE TABLE IF NOT EXISTS attendance(
-                  id INTEGER PRIMARY KEY AUTOINCREMENT,
-                  student_id INTEGER NOT NULL UNIQUE,
-                  present INTEGER NOT NULL DEFAULT 0,
-                  total INTEGER NOT NULL DEFAULT 0,
-                  FOREIGN KEY(student_id) REFERENCES students(id) ON DELETE CASCADE
-                );
-            """);
+            st.execute("PRAGMA journal_mode = WAL");
+            st.execute("PRAGMA synchronous = NORMAL");
+            st.execute("PRAGMA foreign_keys = ON");
+            st.execute("PRAGMA busy_timeout = 5000");
+            st.execute("PRAGMA cache_size = -16384");     // 16 MiB page cache
+            st.execute("PRAGMA mmap_size = 268435456");   // 256 MiB memory-mapped I/O
+        }
+    }
+
+    private void migrate(Connection conn) throws SQLException {
+        int version = getSchemaVersion(conn);
+        for (int v = version; v < MIGRATIONS.length; v++) {
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                for (String sql : MIGRATIONS[v]) st.execute(sql);
+                st.execute("PRAGMA user_version = " + (v + 1));
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw new SQLException("Schema migration to version " + (v + 1) + " failed: " + e.getMessage(), e);
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    public int getSchemaVersion() throws SQLException {
+        try (Connection conn = getConnection()) {
+            return getSchemaVersion(conn);
+        }
+    }
+
+    private int getSchemaVersion(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
         }
     }
 
     // --- Student CRUD ---
+    /** Inserts the student and its attendance row in one transaction and sets the generated id on s. */
     public int insertStudent(Student s) throws SQLException {
         String sql = "INSERT INTO students(name, age, course, roll) VALUES(?, ?, ?, ?)";
-        try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, s.getName());
-            ps.setInt(2, s.getAge());
-            ps.setString(3, s.getCourse());
-            ps.setString(4, s.getRoll());
-            ps.executeUpdate();
-            try (ResultSet rs = ps.getGeneratedKeys()) {
-                if (rs.next()) {
-                    int id = rs.getInt(1);
-                    s.setId(id);
-                    ensureAttendanceRow(id);
-                    return id;
+        return inTransaction(() -> {
+            try (Connection conn = getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, s.getName());
+                ps.setInt(2, s.getAge());
+                ps.setString(3, s.getCourse());
+                ps.setString(4, s.getRoll());
+                ps.executeUpdate();
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        int id = rs.getInt(1);
+                        ensureAttendanceRow(id);
+                        s.setId(id);
+                        recordChange(id);
+                        return id;
+                    }
                 }
             }
-        }
-        throw new SQLException("Failed to insert student.");
+            throw new SQLException("Failed to insert student.");
+        });
     }
 
     public boolean updateStudent(Student s) throws SQLException {
@@ -93,7 +507,9 @@ public class DatabaseHelper {
             ps.setString(3, s.getCourse());
             ps.setString(4, s.getRoll());
             ps.setInt(5, s.getId());
-            return ps.executeUpdate() > 0;
+            boolean ok = ps.executeUpdate() > 0;
+            if (ok) recordChange(s.getId());
+            return ok;
         }
     }
 
@@ -102,7 +518,9 @@ public class DatabaseHelper {
         try (Connection conn = getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
-            return ps.executeUpdate() > 0;
+            boolean ok = ps.executeUpdate() > 0;
+            if (ok) recordChange(id);
+            return ok;
         }
     }
 
@@ -144,12 +562,31 @@ public class DatabaseHelper {
         return null;
     }
 
-    public List<Student> searchStudentsByName(String query) throws SQLException {
-        String sql = "SELECT id, name, age, course, roll FROM students WHERE lower(name) LIKE ? ORDER BY name ASC";
+    /** Served by the trigram index; see StudentRepository for the ranking. */
+    public List<Student> searchStudentsByName(String query, int limit) throws SQLException {
+        String sql = """
+            SELECT s.id, s.name, s.age, s.course, s.roll
+            FROM students_fts f
+            JOIN students s ON s.id = f.rowid
+            WHERE f.name LIKE ?
+            ORDER BY CASE
+                       WHEN s.name = ? COLLATE NOCASE THEN 0
+                       WHEN s.name LIKE ? THEN 1
+                       WHEN s.name LIKE ? THEN 2
+                       ELSE 3
+                     END,
+                     s.name ASC
+            LIMIT ?
+        """;
+        String q = query.trim();
         List<Student> list = new ArrayList<>();
         try (Connection conn = getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, "%" + query.toLowerCase() + "%");
+            ps.setString(1, "%" + q + "%");
+            ps.setString(2, q);
+            ps.setString(3, q + "%");
+            ps.setString(4, "% " + q + "%");
+            ps.setInt(5, limit);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
                     list.add(new Student(
@@ -182,28 +619,73 @@ public class DatabaseHelper {
         return list;
     }
 
-    // --- Subjects ---
-    public int ensureSubject(String name) throws SQLException {
-        String sel = "SELECT id FROM subjects WHERE name=?";
+    /**
+     * Keyset paging: up to pageSize students with id greater than lastId, in id order. Start with
+     * lastId 0 and pass the last id of each page to get the next; an empty or short page is the end.
+     * Each page is a range scan on the primary key (or idx_students_course with a rowid bound when a
+     * course is given), so late pages cost the same as early ones.
+     */
+    public List<Student> listStudentsAfter(String course, int lastId, int pageSize) throws SQLException {
+        if (pageSize <= 0) throw new IllegalArgumentException("Page size must be positive.");
+        String sql = course == null
+                ? "SELECT id, name, age, course, roll FROM students WHERE id > ? ORDER BY id ASC LIMIT ?"
+                : "SELECT id, name, age, course, roll FROM students WHERE course = ? AND id > ? ORDER BY id ASC LIMIT ?";
+        List<Student> list = new ArrayList<>(Math.min(pageSize, 1024));
         try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement(sel)) {
-            ps.setString(1, name);
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (course != null) ps.setString(i++, course);
+            ps.setInt(i++, lastId);
+            ps.setInt(i, pageSize);
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return rs.getInt("id");
+                while (rs.next()) {
+                    list.add(new Student(
+                            rs.getInt("id"),
+                            rs.getString("name"),
+                            rs.getInt("age"),
+                            rs.getString("course"),
+                            rs.getString("roll")));
+                }
             }
         }
-        String ins = "INSERT INTO subjects(name) VALUES(?)";
+        return list;
+    }
+
+    // --- Subjects ---
+    /** Returns the id for a subject name, inserting the subject on first use. Cached after the first call. */
+    public int ensureSubject(String name) throws SQLException {
+        int id = subjects.idOf(name);
+        if (id >= 0) return id;
+        String ins = "INSERT OR IGNORE INTO subjects(name) VALUES(?)";
+        String sel = "SELECT id FROM subjects WHERE name=?";
         try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement(ins, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, name);
-            ps.executeUpdate();
-            try (ResultSet rs = ps.getGeneratedKeys()) {
-                if (rs.next()) return rs.getInt(1);
+             PreparedStatement insert = conn.prepareStatement(ins);
+             PreparedStatement select = conn.prepareStatement(sel)) {
+            insert.setString(1, name);
+            insert.executeUpdate();
+            select.setString(1, name);
+            try (ResultSet rs = select.executeQuery()) {
+                if (rs.next()) {
+                    int subjectId = rs.getInt("id");
+                    // Only cached once committed: a rolled-back id must never be handed out.
+                    afterCommit(() -> subjects.put(subjectId, name));
+                    return subjectId;
+                }
             }
         }
         throw new SQLException("Failed to ensure subject.");
     }
 
+    /** Returns the id of an existing subject, or -1 if there is none. Never queries the database. */
+    public int findSubjectId(String name) {
+        return subjects.idOf(name);
+    }
+
+    /** Returns the name for a subject id, or null if unknown. Never queries the database. */
+    public String getSubjectName(int subjectId) {
+        return subjects.nameOf(subjectId);
+    }
+
     public List<String> listSubjects() throws SQLException {
         String sql = "SELECT name FROM subjects ORDER BY name ASC";
         List<String> subjects = new ArrayList<>();
@@ -216,8 +698,14 @@ public class DatabaseHelper {
     }
 
     // --- Marks ---
+    /** Creates the subject if needed and sets the mark, committing both together. */
     public void upsertMark(int studentId, String subjectName, double marks) throws SQLException {
-        int subjectId = ensureSubject(subjectName);
+        int subjectId = findSubjectId(subjectName);
+        if (subjectId >= 0) upsertMark(studentId, subjectId, marks);
+        else inTransaction(() -> upsertMark(studentId, ensureSubject(subjectName), marks));
+    }
+
+    public void upsertMark(int studentId, int subjectId, double marks) throws SQLException {
         String upsert = """
             INSERT INTO marks(student_id, subject_id, marks) VALUES(?, ?, ?)
             ON CONFLICT(student_id, subject_id) DO UPDATE SET marks=excluded.marks
@@ -229,6 +717,21 @@ public class DatabaseHelper {
             ps.setDouble(3, marks);
             ps.executeUpdate();
         }
+        recordChange(studentId);
+    }
+
+    public boolean deleteMark(int studentId, String subjectName) throws SQLException {
+        int subjectId = findSubjectId(subjectName);
+        if (subjectId < 0) return false;
+        String sql = "DELETE FROM marks WHERE student_id=? AND subject_id=?";
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, studentId);
+            ps.setInt(2, subjectId);
+            boolean ok = ps.executeUpdate() > 0;
+            if (ok) recordChange(studentId);
+            return ok;
+        }
     }
 
     public Map<String, Double> getMarksForStudent(int studentId) throws SQLException {
@@ -252,6 +755,180 @@ public class DatabaseHelper {
         return map;
     }
 
+    public Performance readMarks(int studentId, Performance into) throws SQLException {
+        into.reset();
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT subject_id, marks FROM marks WHERE student_id = ?")) {
+            ps.setInt(1, studentId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) into.putMark(rs.getInt(1), rs.getDouble(2));
+            }
+        }
+        return into;
+    }
+
+    // --- Terms ---
+    /**
+     * One BEGIN IMMEDIATE transaction, so the database's write lock is held while every mark of the
+     * open term is copied, for a time that grows with the marks table. Writers on other connections
+     * wait up to their busy_timeout (5 s here) and then fail with SQLITE_BUSY, so close a large term
+     * in a maintenance window, or with other processes' busy_timeout raised for the duration.
+     * Every step is one set-wise statement. The live marks table is dropped and re-created empty rather
+     * than deleted row by row, which skips its triggers (and with foreign keys on, a DELETE cannot
+     * truncate): student_performance is reset with one UPDATE and the change log gets a single TERM
+     * event instead of a MARK DELETE per archived mark.
+     */
+    public Term closeTerm(String name) throws SQLException {
+        long closedAt = System.currentTimeMillis();
+        return inTransaction(() -> {
+            try (Connection conn = getConnection()) {
+                int id;
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO terms(name, closed_at) VALUES(?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setString(1, name);
+                    ps.setLong(2, closedAt);
+                    ps.executeUpdate();
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        rs.next();
+                        id = rs.getInt(1);
+                    }
+                }
+                try (Statement st = conn.createStatement()) {
+                    st.execute("CREATE TABLE " + termTable(id) + """
+                        (
+                          student_id INTEGER NOT NULL,
+                          subject_id INTEGER NOT NULL,
+                          marks REAL NOT NULL,
+                          PRIMARY KEY(student_id, subject_id),
+                          FOREIGN KEY(student_id) REFERENCES students(id) ON DELETE CASCADE
+                        ) WITHOUT ROWID
+                        """);
+                    st.execute("INSERT INTO " + termTable(id)
+                            + " SELECT student_id, subject_id, marks FROM marks ORDER BY student_id, subject_id");
+                    st.execute("INSERT INTO term_performance(student_id, term_id, total, subjects) SELECT student_id, "
+                            + id + ", total, subjects FROM student_performance WHERE subjects > 0");
+
+                    // Schema of marks as it stands (table first, then its indexes and triggers), re-created empty.
+                    List<String> schema = new ArrayList<>();
+                    try (ResultSet rs = st.executeQuery("SELECT sql FROM sqlite_master WHERE tbl_name = 'marks'"
+                            + " AND sql IS NOT NULL ORDER BY type <> 'table', type = 'trigger', rowid")) {
+                        while (rs.next()) schema.add(rs.getString(1));
+                    }
+                    st.execute("DROP TABLE marks");
+                    for (String sql : schema) st.execute(sql);
+                    st.execute("UPDATE student_performance SET total = 0, subjects = 0 WHERE subjects > 0");
+                    st.execute("INSERT INTO change_log(entity, op, student_id) VALUES ('TERM', 'INSERT', 0)");
+                }
+                recordBulkChange();
+                return new Term(id, name, closedAt);
+            }
+        });
+    }
+
+    public List<Term> listTerms() throws SQLException {
+        List<Term> terms = new ArrayList<>();
+        try (Connection conn = getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id, name, closed_at FROM terms ORDER BY id")) {
+            while (rs.next()) terms.add(new Term(rs.getInt(1), rs.getString(2), rs.getLong(3)));
+        }
+        return terms;
+    }
+
+    public Map<String, Double> getMarksForStudent(int studentId, int termId) throws SQLException {
+        if (termId == CURRENT_TERM) return getMarksForStudent(studentId);
+        String sql = "SELECT subjects.name, m.marks FROM " + termTable(requireTerm(termId)) + " m"
+                + " JOIN subjects ON subjects.id = m.subject_id WHERE m.student_id = ? ORDER BY subjects.name ASC";
+        Map<String, Double> map = new LinkedHashMap<>();
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, studentId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) map.put(rs.getString(1), rs.getDouble(2));
+            }
+        }
+        return map;
+    }
+
+    public double getPercentageForStudent(int studentId, int termId) throws SQLException {
+        if (termId == CURRENT_TERM) return getPercentageForStudent(studentId);
+        requireTerm(termId);
+        String sql = "SELECT total / subjects FROM term_performance WHERE student_id = ? AND term_id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, studentId);
+            ps.setInt(2, termId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getDouble(1) : 0.0;
+            }
+        }
+    }
+
+    public List<TermResult> getTermHistory(int studentId) throws SQLException {
+        // One primary-key range of term_performance plus the open term's row.
+        String sql = """
+            SELECT term_id, name, total, subjects FROM (
+              SELECT p.term_id, t.name, p.total, p.subjects
+              FROM term_performance p JOIN terms t ON t.id = p.term_id
+              WHERE p.student_id = ?
+              UNION ALL
+              SELECT 0, 'Current', total, subjects FROM student_performance WHERE student_id = ? AND subjects > 0
+            ) ORDER BY term_id = 0, term_id
+        """;
+        List<TermResult> history = new ArrayList<>();
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, studentId);
+            ps.setInt(2, studentId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) history.add(new TermResult(rs.getInt(1), rs.getString(2), rs.getDouble(3), rs.getInt(4)));
+            }
+        }
+        return history;
+    }
+
+    public List<TermDelta> getTermDeltas(int fromTermId, int toTermId) throws SQLException {
+        String sql = "WITH a AS (" + termPercentages(fromTermId) + "), b AS (" + termPercentages(toTermId) + "),"
+                + " d AS (SELECT s.course, a.pct AS from_pct, b.pct AS to_pct"
+                + "       FROM a JOIN b ON b.student_id = a.student_id JOIN students s ON s.id = a.student_id)"
+                + " SELECT grp, n, from_avg, to_avg, up, down FROM ("
+                + "   SELECT 0 AS k, course AS grp, COUNT(*) AS n, AVG(from_pct) AS from_avg, AVG(to_pct) AS to_avg,"
+                + "          SUM(to_pct > from_pct) AS up, SUM(to_pct < from_pct) AS down FROM d GROUP BY course"
+                + "   UNION ALL"
+                + "   SELECT 1, NULL, COUNT(*), AVG(from_pct), AVG(to_pct), SUM(to_pct > from_pct), SUM(to_pct < from_pct) FROM d"
+                + " ) WHERE n > 0 ORDER BY k, grp";
+        List<TermDelta> deltas = new ArrayList<>();
+        try (Connection conn = getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                String group = rs.getString(1);
+                deltas.add(new TermDelta(group == null ? TermDelta.ALL : group, rs.getLong(2),
+                        rs.getDouble(3), rs.getDouble(4), rs.getLong(5), rs.getLong(6)));
+            }
+        }
+        return deltas;
+    }
+
+    // (student_id, pct) of everyone with marks in the term; term ids are checked, so they are safe to inline.
+    private String termPercentages(int termId) throws SQLException {
+        if (termId == CURRENT_TERM) return "SELECT student_id, percentage AS pct FROM student_performance WHERE subjects > 0";
+        return "SELECT student_id, total / subjects AS pct FROM term_performance WHERE term_id = " + requireTerm(termId);
+    }
+
+    private int requireTerm(int termId) throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM terms WHERE id = ?")) {
+            ps.setInt(1, termId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) throw new IllegalArgumentException("Unknown term " + termId + ".");
+            }
+        }
+        return termId;
+    }
+
+    private static String termTable(int termId) { return "marks_term_" + termId; }
+
     // --- Attendance ---
     private void ensureAttendanceRow(int studentId) throws SQLException {
         String sql = "INSERT OR IGNORE INTO attendance(student_id, present, total) VALUES(?, 0, 0)";
@@ -273,10 +950,32 @@ public class DatabaseHelper {
             ps.setInt(1, addPresent);
             ps.setInt(2, addTotal);
             ps.setInt(3, studentId);
-            ps.executeUpdate();
+            if (ps.executeUpdate() > 0) recordChange(studentId);
         }
     }
 
+    /** Applies many {present, total} deltas, keyed by student id, in a single transaction. */
+    public void addAttendanceBatch(Map<Integer, int[]> deltas) throws SQLException {
+        String sql = """
+            UPDATE attendance
+            SET present = present + ?, total = total + ?
+            WHERE student_id = ?
+        """;
+        inTransaction(() -> {
+            try (Connection conn = getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (Map.Entry<Integer, int[]> e : deltas.entrySet()) {
+                    ps.setInt(1, e.getValue()[0]);
+                    ps.setInt(2, e.getValue()[1]);
+                    ps.setInt(3, e.getKey());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            for (Integer id : deltas.keySet()) recordChange(id);
+        });
+    }
+
     public int[] getAttendance(int studentId) throws SQLException {
         String sql = "SELECT present, total FROM attendance WHERE student_id=?";
         try (Connection conn = getConnection();
@@ -293,10 +992,15 @@ public class DatabaseHelper {
 
     // --- Analytics ---
     public double getPercentageForStudent(int studentId) throws SQLException {
-        Map<String, Double> marks = getMarksForStudent(studentId);
-        if (marks.isEmpty()) return 0.0;
-        double total = marks.values().stream().mapToDouble(Double::doubleValue).sum();
-        return total / marks.size();
+        String sql = "SELECT percentage FROM student_performance WHERE student_id=?";
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, studentId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return rs.getDouble("percentage");
+            }
+        }
+        return 0.0;
     }
 
     public String getGradeForPercentage(double pct) {
@@ -309,25 +1013,51 @@ public class DatabaseHelper {
     }
 
     public List<Student> getRankedStudents() throws SQLException {
-        // Compute ranking: percentage desc, attendance desc
-        List<Student> students = getAllStudents();
-        students.sort((a, b) -> {
-            try {
-                double pctA = getPercentageForStudent(a.getId());
-                double pctB = getPercentageForStudent(b.getId());
-                int cmpPct = Double.compare(pctB, pctA);
-                if (cmpPct != 0) return cmpPct;
-
-                double attA = getAttendancePercentage(a.getId());
-                double attB = getAttendancePercentage(b.getId());
-                return Double.compare(attB, attA);
-            } catch (SQLException e) {
-                return 0;
-            }
-        });
+        List<Student> students = new ArrayList<>();
+        for (RankedStudent r : getRankings()) students.add(r.getStudent());
         return students;
     }
 
+    /**
+     * Ranks every student (percentage desc, attendance desc, id asc) in one query over the
+     * student_performance aggregate joined with attendance, so no per-student lookups are made.
+     */
+    public List<RankedStudent> getRankings() throws SQLException {
+        return queryRanked(PERFORMANCE_SELECT + RANK_ORDER, -1);
+    }
+
+    /**
+     * Returns only the best k students. ORDER BY and LIMIT run inside SQLite,
+     * so just k rows are materialized however large the cohort is.
+     */
+    public List<RankedStudent> getTopStudents(int k) throws SQLException {
+        if (k <= 0) return new ArrayList<>();
+        return queryRanked(PERFORMANCE_SELECT + RANK_ORDER + " LIMIT ?", k);
+    }
+
+    private List<RankedStudent> queryRanked(String sql, int limit) throws SQLException {
+        List<RankedStudent> list = new ArrayList<>();
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (limit >= 0) ps.setInt(1, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(readRanked(rs));
+            }
+        }
+        return list;
+    }
+
+    private RankedStudent readRanked(ResultSet rs) throws SQLException {
+        Student s = new Student(
+                rs.getInt("id"),
+                rs.getString("name"),
+                rs.getInt("age"),
+                rs.getString("course"),
+                rs.getString("roll"));
+        return new RankedStudent(s, rs.getDouble("pct"), rs.getString("grade"),
+                rs.getInt("present"), rs.getInt("total"));
+    }
+
     public double getAttendancePercentage(int studentId) throws SQLException {
         int[] at = getAttendance(studentId);
         int present = at[0], total = at[1];
@@ -335,48 +1065,246 @@ public class DatabaseHelper {
     }
 
     public double getClassAveragePercentage() throws SQLException {
-        List<Student> students = getAllStudents();
-        if (students.isEmpty()) return 0.0;
-        double sum = 0.0;
-        int count = 0;
-        for (Student s : students) {
-            sum += getPercentageForStudent(s.getId());
-            count++;
-        }
-        return count == 0 ? 0.0 : sum / count;
+        return getSummaryStats().getClassAverage();
     }
 
     public long getPassCount() throws SQLException {
-        List<Student> students = getAllStudents();
+        return getSummaryStats().getPassCount();
+    }
+
+    public Student getHighestScorer() throws SQLException {
+        RankedStudent best = getSummaryStats().getHighestScorer();
+        return best == null ? null : best.getStudent();
+    }
+
+    public double getAverageAttendancePercentage() throws SQLException {
+        return getSummaryStats().getAverageAttendance();
+    }
+
+    public SummaryStats getSummaryStats() throws SQLException {
+        return getSummaryStats(null);
+    }
+
+    /**
+     * Computes every summary figure in a single scan (students in id order).
+     * Each row is also handed to {@code each}, when given, so callers can list students from the same pass.
+     */
+    public SummaryStats getSummaryStats(Consumer<RankedStudent> each) throws SQLException {
+        int count = 0;
         long pass = 0;
-        for (Student s : students) {
-            double pct = getPercentageForStudent(s.getId());
-            if (pct >= 50.0) pass++;
+        double pctSum = 0.0, attSum = 0.0;
+        RankedStudent best = null;
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(PERFORMANCE_SELECT + " ORDER BY s.id ASC");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                RankedStudent r = readRanked(rs);
+                count++;
+                pctSum += r.getPercentage();
+                attSum += r.getAttendancePercentage();
+                if (r.getPercentage() >= 50.0) pass++;
+                if (best == null || r.getPercentage() > best.getPercentage()) best = r;
+                if (each != null) each.accept(r);
+            }
         }
-        return pass;
+        return count == 0
+                ? new SummaryStats(0, 0.0, 0, null, 0.0)
+                : new SummaryStats(count, pctSum / count, pass, best, attSum / count);
     }
 
-    public Student getHighestScorer() throws SQLException {
-        List<Student> students = getAllStudents();
-        Student best = null;
-        double bestPct = -1;
-        for (Student s : students) {
-            double pct = getPercentageForStudent(s.getId());
-            if (pct > bestPct) {
-                bestPct = pct;
-                best = s;
+    // --- Analytics snapshot feed ---
+    private static final String SNAPSHOT_STUDENTS = """
+        SELECT s.id, s.name, s.age, s.course, s.roll,
+               COALESCE(p.total, 0.0) AS marks_total,
+               COALESCE(p.subjects, 0) AS subjects,
+               COALESCE(p.percentage, 0.0) AS pct,
+               COALESCE(a.present, 0) AS present,
+               COALESCE(a.total, 0) AS total
+        FROM students s
+        LEFT JOIN student_performance p ON p.student_id = s.id
+        LEFT JOIN attendance a ON a.student_id = s.id
+    """;
+    private static final String SNAPSHOT_MARKS = "SELECT student_id, subject_id, marks FROM marks";
+    // Changed ids are bound as one JSON array, so a single cached statement handles any number of them.
+    private static final String ONLY_IDS = " IN (SELECT value FROM json_each(?))";
+
+    public void readSnapshotRows(int[] onlyIds, AnalyticsSnapshot.RowSink sink) throws SQLException {
+        String idList = onlyIds == null ? null : Arrays.toString(onlyIds);
+        String students = SNAPSHOT_STUDENTS + (onlyIds == null ? "" : " WHERE s.id" + ONLY_IDS) + " ORDER BY s.id ASC";
+        String marksSql = SNAPSHOT_MARKS + (onlyIds == null ? "" : " WHERE student_id" + ONLY_IDS)
+                + " ORDER BY student_id ASC, subject_id ASC";
+        try (Connection conn = getConnection()) {
+            // One read transaction, so the student rows and the marks come from the same WAL snapshot.
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(students);
+                 PreparedStatement pm = conn.prepareStatement(marksSql)) {
+                if (idList != null) {
+                    ps.setString(1, idList);
+                    pm.setString(1, idList);
+                }
+                try (ResultSet rs = ps.executeQuery(); ResultSet rm = pm.executeQuery()) {
+                    boolean hasMark = rm.next();
+                    while (rs.next()) {
+                        int id = rs.getInt("id");
+                        sink.student(id, rs.getString("name"), rs.getInt("age"), rs.getString("course"),
+                                rs.getString("roll"), rs.getDouble("marks_total"), rs.getInt("subjects"),
+                                rs.getDouble("pct"), rs.getInt("present"), rs.getInt("total"));
+                        while (hasMark && rm.getInt(1) <= id) {
+                            if (rm.getInt(1) == id) sink.mark(rm.getInt(2), rm.getDouble(3));
+                            hasMark = rm.next();
+                        }
+                    }
+                }
+                conn.commit();
+            } finally {
+                conn.setAutoCommit(true);
             }
         }
-        return best;
     }
 
-    public double getAverageAttendancePercentage() throws SQLException {
-        List<Student> students = getAllStudents();
-        if (students.isEmpty()) return 0.0;
-        double sum = 0.0;
-        for (Student s : students) {
-            sum += getAttendancePercentage(s.getId());
+    // --- Subject & Course Statistics ---
+    private static final double[] QUANTILES = {0.25, 0.5, 0.75, 0.9};
+    private static final String[] GRADE_BANDS = {"A+", "A", "B+", "B", "C", "F"};
+    // Column g<i> counts the values in GRADE_BANDS[i], with getGradeForPercentage's cut-offs.
+    private static final String GRADE_BAND_SUMS = """
+        SUM(v >= 90) AS g0, SUM(v >= 80 AND v < 90) AS g1, SUM(v >= 70 AND v < 80) AS g2,
+        SUM(v >= 60 AND v < 70) AS g3, SUM(v >= 50 AND v < 60) AS g4, SUM(v < 50) AS g5
+    """;
+
+    /**
+     * Statistics of each subject's marks, optionally only for students of one course (null for all).
+     * Ordered by subject name.
+     */
+    public List<GroupStats> getSubjectStats(String course) throws SQLException {
+        boolean filtered = course != null && !course.isBlank();
+        String values = filtered
+                ? "SELECT m.subject_id AS grp, m.marks AS v FROM marks m JOIN students s ON s.id = m.student_id WHERE s.course = ?"
+                : "SELECT m.subject_id AS grp, m.marks AS v FROM marks m";
+        List<GroupStats> bySubjectId = groupStats(values, filtered ? course.trim() : null);
+        List<GroupStats> list = new ArrayList<>(bySubjectId.size());
+        for (GroupStats g : bySubjectId) {
+            String name = subjects.nameOf(Integer.parseInt(g.getGroup()));
+            list.add(new GroupStats(name == null ? "#" + g.getGroup() : name, g.getCount(), g.getMean(),
+                    g.getMin(), g.getMax(), g.getStdDev(), g.getP25(), g.getMedian(), g.getP75(), g.getP90(),
+                    g.getGradeHistogram()));
+        }
+        list.sort(Comparator.comparing(GroupStats::getGroup));
+        return list;
+    }
+
+    /** Statistics of student percentages per course (students without marks count as 0%). */
+    public List<GroupStats> getCourseStats() throws SQLException {
+        return groupStats("""
+            SELECT s.course AS grp, COALESCE(p.percentage, 0.0) AS v
+            FROM students s LEFT JOIN student_performance p ON p.student_id = s.id
+        """, null);
+    }
+
+    /**
+     * Count, mean, min/max, spread and grade bands come from one GROUP BY query; percentiles come
+     * from a second pass over the values in sorted order, picking the ranks each group needs, so no
+     * group is ever held in memory. Both queries share one read transaction and therefore agree.
+     * valuesSql must yield (grp, v) and may take a single string parameter.
+     */
+    private List<GroupStats> groupStats(String valuesSql, String param) throws SQLException {
+        String aggregate = "SELECT grp, COUNT(*) AS n, AVG(v) AS mean, MIN(v) AS lo, MAX(v) AS hi, AVG(v * v) AS mean_sq, "
+                + GRADE_BAND_SUMS + " FROM (" + valuesSql + ") GROUP BY grp ORDER BY grp";
+        String ordered = "SELECT grp, v FROM (" + valuesSql + ") ORDER BY grp, v";
+
+        List<GroupStats> list = new ArrayList<>();
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement agg = conn.prepareStatement(aggregate);
+                 PreparedStatement vals = conn.prepareStatement(ordered)) {
+                if (param != null) {
+                    agg.setString(1, param);
+                    vals.setString(1, param);
+                }
+                try (ResultSet ra = agg.executeQuery(); ResultSet rv = vals.executeQuery()) {
+                    while (ra.next()) {
+                        long n = ra.getLong("n");
+                        double mean = ra.getDouble("mean");
+                        double[] q = new double[QUANTILES.length];
+                        double[] lo = new double[QUANTILES.length];
+                        for (long r = 0; r < n && rv.next(); r++) {
+                            double v = rv.getDouble(2);
+                            for (int k = 0; k < QUANTILES.length; k++) {
+                                double pos = QUANTILES[k] * (n - 1);
+                                long below = (long) Math.floor(pos);
+                                if (r == below) lo[k] = q[k] = v;
+                                if (r == below + 1) q[k] = lo[k] + (pos - below) * (v - lo[k]);
+                            }
+                        }
+                        Map<String, Long> histogram = new LinkedHashMap<>();
+                        for (int b = 0; b < GRADE_BANDS.length; b++) histogram.put(GRADE_BANDS[b], ra.getLong("g" + b));
+                        double variance = Math.max(0.0, ra.getDouble("mean_sq") - mean * mean);
+                        list.add(new GroupStats(ra.getString("grp"), n, mean, ra.getDouble("lo"), ra.getDouble("hi"),
+                                Math.sqrt(variance), q[0], q[1], q[2], q[3], histogram));
+                    }
+                }
+                conn.commit();
+            } finally {
+                conn.setAutoCommit(true);
+            }
         }
-        return sum / students.size();
+        return list;
+    }
+
+    // --- Result Cards ---
+    /**
+     * Streams every student's result card in id order from one cursor over students, attendance
+     * and marks. SQLite walks students by rowid and only sorts each student's few marks by subject
+     * name, so rows arrive grouped and nothing but the current card is held in memory.
+     */
+    public long forEachResultCard(Consumer<ResultCard> each) throws SQLException {
+        String sql = """
+            SELECT s.id, s.name, s.age, s.course, s.roll,
+                   COALESCE(a.present, 0) AS present, COALESCE(a.total, 0) AS total,
+                   sub.name AS subject, m.marks AS marks
+            FROM students s
+            LEFT JOIN attendance a ON a.student_id = s.id
+            LEFT JOIN marks m ON m.student_id = s.id
+            LEFT JOIN subjects sub ON sub.id = m.subject_id
+            ORDER BY s.id ASC, sub.name ASC
+        """;
+        long count = 0;
+        List<String> subjectNames = new ArrayList<>();
+        double[] marks = new double[16];
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            Student current = null;
+            int present = 0, total = 0;
+            while (rs.next()) {
+                int id = rs.getInt("id");
+                if (current == null || current.getId() != id) {
+                    if (current != null) {
+                        each.accept(toCard(current, subjectNames, marks, present, total));
+                        count++;
+                    }
+                    current = new Student(id, rs.getString("name"), rs.getInt("age"),
+                            rs.getString("course"), rs.getString("roll"));
+                    present = rs.getInt("present");
+                    total = rs.getInt("total");
+                    subjectNames.clear();
+                }
+                String subject = rs.getString("subject");
+                if (subject != null) {
+                    if (subjectNames.size() == marks.length) marks = Arrays.copyOf(marks, marks.length * 2);
+                    marks[subjectNames.size()] = rs.getDouble("marks");
+                    subjectNames.add(subject);
+                }
+            }
+            if (current != null) {
+                each.accept(toCard(current, subjectNames, marks, present, total));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static ResultCard toCard(Student s, List<String> subjectNames, double[] marks, int present, int total) {
+        int n = subjectNames.size();
+        return new ResultCard(s, subjectNames.toArray(new String[n]), Arrays.copyOf(marks, n), present, total);
     }
 }
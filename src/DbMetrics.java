@@ -0,0 +1,223 @@
+package src;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Query metrics collected by ConnectionPool while enabled: connection opens and borrows, and for
+ * each operation (the method that borrowed the connection, e.g. DatabaseHelper.getMarksForStudent)
+ * how often it ran, how long it held the connection, how many statements it executed and how many
+ * rows they returned or changed. Each distinct SQL statement is tracked the same way.
+ *
+ * Off unless -Dstudent.metrics=true or setEnabled(true); while off the pool pays one volatile read
+ * per borrow and per statement prepared.
+ */
+public class DbMetrics {
+    private static final int MAX_SQL_LENGTH = 160;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private volatile boolean enabled = Boolean.getBoolean("student.metrics");
+    private volatile long startedAt = System.currentTimeMillis();
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder borrows = new LongAdder();
+    private final LatencyHistogram borrowWait = new LatencyHistogram();
+    private final ConcurrentHashMap<String, Stats> operations = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Stats> queries = new ConcurrentHashMap<>();
+    // Statement text as issued -> its entry in queries, so each SQL string is normalised only once.
+    private final ConcurrentHashMap<String, Stats> queriesBySql = new ConcurrentHashMap<>();
+
+    /** Counters and latency for one operation or one SQL statement. */
+    public static final class Stats {
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        public long getCount() { return latency.getCount(); }
+        public long getStatements() { return statements.sum(); }
+        public long getRows() { return rows.sum(); }
+        public LatencyHistogram getLatency() { return latency; }
+
+        void recordCall(long nanos) { latency.record(nanos); }
+        void addStatement() { statements.increment(); }
+        void addRows(long n) { rows.add(n); }
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public void reset() {
+        connectionsOpened.reset();
+        borrows.reset();
+        borrowWait.reset();
+        operations.clear();
+        queries.clear();
+        queriesBySql.clear();
+        startedAt = System.currentTimeMillis();
+    }
+
+    // --- Recording (called by ConnectionPool) ---
+    void connectionOpened() {
+        if (enabled) connectionsOpened.increment();
+    }
+
+    /** Records a borrow and returns the stats of the operation it is for. */
+    Stats borrowed(long waitNanos) {
+        borrows.increment();
+        borrowWait.record(waitNanos);
+        return operations.computeIfAbsent(callerName(), k -> new Stats());
+    }
+
+    Stats query(String sql) {
+        Stats s = queriesBySql.get(sql);
+        if (s == null) {
+            s = queries.computeIfAbsent(normalize(sql), k -> new Stats());
+            queriesBySql.put(sql, s);
+        }
+        return s;
+    }
+
+    private static final StackWalker WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    /** First frame outside the pool, the JDK and the connection plumbing, as Class.method. */
+    private static String callerName() {
+        return WALKER.walk(frames -> frames
+                .filter(f -> {
+                    Class<?> c = f.getDeclaringClass();
+                    String n = c.getName();
+                    return c != ConnectionPool.class && c.getEnclosingClass() != ConnectionPool.class && c != DbMetrics.class
+                            && !(c == DatabaseHelper.class && f.getMethodName().equals("getConnection"))
+                            && !f.getMethodName().equals("inTransaction")
+                            && !n.startsWith("java.") && !n.startsWith("jdk.") && !n.startsWith("sun.") && !n.startsWith("com.sun.");
+                })
+                .findFirst()
+                .map(f -> f.getDeclaringClass().getSimpleName() + "." + f.getMethodName())
+                .orElse("unknown"));
+    }
+
+    private static String normalize(String sql) {
+        String s = sql.trim().replaceAll("\\s+", " ");
+        return s.length() <= MAX_SQL_LENGTH ? s : s.substring(0, MAX_SQL_LENGTH) + "...";
+    }
+
+    // --- Reading ---
+    public long getConnectionsOpened() { return connectionsOpened.sum(); }
+    public long getBorrows() { return borrows.sum(); }
+    public LatencyHistogram getBorrowWait() { return borrowWait; }
+    public Map<String, Stats> getOperations() { return new TreeMap<>(operations); }
+    public Map<String, Stats> getQueries() { return new TreeMap<>(queries); }
+
+    /** Human-readable table of operations, slowest total time first. */
+    public String buildReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\n===== Database Metrics =====\n");
+        sb.append("Collecting: ").append(enabled ? "on" : "off")
+                .append(" | Connections opened: ").append(getConnectionsOpened())
+                .append(" | Borrows: ").append(getBorrows())
+                .append(String.format(" | Borrow wait p99: %.3f ms%n", borrowWait.getValueAtQuantile(0.99) / 1e6));
+        sb.append(String.format("%-44s %8s %8s %10s %10s %10s %10s%n",
+                "Operation", "Calls", "Stmts", "Rows", "Mean ms", "p99 ms", "Total ms"));
+        List<Map.Entry<String, Stats>> ops = new ArrayList<>(operations.entrySet());
+        ops.sort((a, b) -> Long.compare(b.getValue().latency.getSumNanos(), a.getValue().latency.getSumNanos()));
+        for (Map.Entry<String, Stats> e : ops) {
+            Stats s = e.getValue();
+            sb.append(String.format("%-44s %8d %8d %10d %10.3f %10.3f %10.1f%n",
+                    e.getKey(), s.getCount(), s.getStatements(), s.getRows(),
+                    s.latency.getMeanNanos() / 1e6, s.latency.getValueAtQuantile(0.99) / 1e6,
+                    s.latency.getSumNanos() / 1e6));
+        }
+        if (ops.isEmpty()) sb.append("  (nothing recorded)\n");
+        sb.append("============================\n");
+        return sb.toString();
+    }
+
+    // --- Export ---
+    public String toJson() {
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("enabled", enabled);
+        root.put("since", startedAt);
+        root.put("connectionsOpened", getConnectionsOpened());
+        root.put("borrows", getBorrows());
+        root.put("borrowWait", histogramJson(borrowWait));
+        root.put("operations", statsJson(operations));
+        root.put("queries", statsJson(queries));
+        return Json.write(root);
+    }
+
+    private static Map<String, Object> statsJson(Map<String, Stats> map) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        new TreeMap<>(map).forEach((name, s) -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("count", s.getCount());
+            m.put("statements", s.getStatements());
+            m.put("rows", s.getRows());
+            m.put("latency", histogramJson(s.latency));
+            out.put(name, m);
+        });
+        return out;
+    }
+
+    private static Map<String, Object> histogramJson(LatencyHistogram h) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("count", h.getCount());
+        m.put("meanMs", h.getMeanNanos() / 1e6);
+        m.put("p50Ms", h.getValueAtQuantile(0.5) / 1e6);
+        m.put("p90Ms", h.getValueAtQuantile(0.9) / 1e6);
+        m.put("p99Ms", h.getValueAtQuantile(0.99) / 1e6);
+        m.put("maxMs", h.getMaxNanos() / 1e6);
+        return m;
+    }
+
+    /** Prometheus text exposition format (latencies as summaries, in seconds). */
+    public String toPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# TYPE student_db_connections_opened_total counter\n");
+        sb.append("student_db_connections_opened_total ").append(getConnectionsOpened()).append('\n');
+        sb.append("# TYPE student_db_borrows_total counter\n");
+        sb.append("student_db_borrows_total ").append(getBorrows()).append('\n');
+        sb.append("# TYPE student_db_borrow_wait_seconds summary\n");
+        summary(sb, "student_db_borrow_wait_seconds", "", borrowWait);
+        family(sb, "operation", operations);
+        family(sb, "query", queries);
+        return sb.toString();
+    }
+
+    private static void family(StringBuilder sb, String kind, Map<String, Stats> map) {
+        String label = kind.equals("query") ? "sql" : kind;
+        Map<String, Stats> sorted = new TreeMap<>(map);
+        sb.append("# TYPE student_db_").append(kind).append("_seconds summary\n");
+        sorted.forEach((name, s) -> summary(sb, "student_db_" + kind + "_seconds", label + "=\"" + escape(name) + "\"", s.latency));
+        sb.append("# TYPE student_db_").append(kind).append("_statements_total counter\n");
+        sorted.forEach((name, s) -> sb.append("student_db_").append(kind).append("_statements_total{")
+                .append(label).append("=\"").append(escape(name)).append("\"} ").append(s.getStatements()).append('\n'));
+        sb.append("# TYPE student_db_").append(kind).append("_rows_total counter\n");
+        sorted.forEach((name, s) -> sb.append("student_db_").append(kind).append("_rows_total{")
+                .append(label).append("=\"").append(escape(name)).append("\"} ").append(s.getRows()).append('\n'));
+    }
+
+    private static void summary(StringBuilder sb, String metric, String labels, LatencyHistogram h) {
+        String sep = labels.isEmpty() ? "" : ",";
+        for (double q : QUANTILES) {
+            sb.append(metric).append('{').append(labels).append(sep).append("quantile=\"").append(q).append("\"} ")
+                    .append(h.getValueAtQuantile(q) / 1e9).append('\n');
+        }
+        String plain = labels.isEmpty() ? "" : "{" + labels + "}";
+        sb.append(metric).append("_sum").append(plain).append(' ').append(h.getSumNanos() / 1e9).append('\n');
+        sb.append(metric).append("_count").append(plain).append(' ').append(h.getCount()).append('\n');
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /** Writes the metrics to a file, as Prometheus text when the name ends in .prom or .txt, else JSON. */
+    public void dump(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        String body = name.endsWith(".prom") || name.endsWith(".txt") ? toPrometheus() : toJson();
+        Files.writeString(file, body, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,34 @@
+package src;
+
+/**
+ * Outcome of an export: rows and bytes written and how long it took.
+ */
+public class ExportResult {
+    private final long rows;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    public ExportResult(long rows, long bytes, long elapsedNanos) {
+        this.rows = rows;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRows() { return rows; }
+    public long getBytes() { return bytes; }
+    public double getElapsedSeconds() { return elapsedNanos / 1e9; }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : rows / getElapsedSeconds();
+    }
+
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : bytes / 1048576.0 / getElapsedSeconds();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ExportResult{Rows=%d, Bytes=%d, Time=%.2fs, Rate=%.0f rows/s, %.1f MB/s}",
+                rows, bytes, getElapsedSeconds(), getRowsPerSecond(), getMegabytesPerSecond());
+    }
+}
@@ -0,0 +1,89 @@
+package src;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Distribution of one group's values: a subject's marks, or a course's student percentages.
+ * Standard deviation is the population one; percentiles interpolate linearly between the two
+ * nearest ranks (p * (n - 1)), so the median of an even-sized group is the mean of the middle pair.
+ */
+public class GroupStats {
+    private final String group;
+    private final long count;
+    private final double mean;
+    private final double min;
+    private final double max;
+    private final double stdDev;
+    private final double p25;
+    private final double median;
+    private final double p75;
+    private final double p90;
+    private final Map<String, Long> gradeHistogram;
+
+    public GroupStats(String group, long count, double mean, double min, double max, double stdDev,
+                      double p25, double median, double p75, double p90, Map<String, Long> gradeHistogram) {
+        this.group = group;
+        this.count = count;
+        this.mean = mean;
+        this.min = min;
+        this.max = max;
+        this.stdDev = stdDev;
+        this.p25 = p25;
+        this.median = median;
+        this.p75 = p75;
+        this.p90 = p90;
+        this.gradeHistogram = Collections.unmodifiableMap(gradeHistogram);
+    }
+
+    /**
+     * Statistics of values[0, n) (n > 0), computed the way DatabaseHelper's SQL does: variance as
+     * E[v^2] - mean^2, the same percentile interpolation and grade cut-offs. Sorts the range in place.
+     */
+    static GroupStats of(String group, double[] values, int n) {
+        Arrays.sort(values, 0, n);
+        double sum = 0, sumSq = 0;
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (String grade : new String[]{"A+", "A", "B+", "B", "C", "F"}) histogram.put(grade, 0L);
+        for (int i = 0; i < n; i++) {
+            double v = values[i];
+            sum += v;
+            sumSq += v * v;
+            histogram.merge(Performance.calculateGrade(v), 1L, Long::sum);
+        }
+        double mean = sum / n;
+        double variance = Math.max(0.0, sumSq / n - mean * mean);
+        return new GroupStats(group, n, mean, values[0], values[n - 1], Math.sqrt(variance),
+                percentile(values, n, 0.25), percentile(values, n, 0.5), percentile(values, n, 0.75),
+                percentile(values, n, 0.9), histogram);
+    }
+
+    private static double percentile(double[] sorted, int n, double q) {
+        double pos = q * (n - 1);
+        int below = (int) Math.floor(pos);
+        if (below + 1 >= n) return sorted[below];
+        return sorted[below] + (pos - below) * (sorted[below + 1] - sorted[below]);
+    }
+
+    public String getGroup() { return group; }
+    public long getCount() { return count; }
+    public double getMean() { return mean; }
+    public double getMin() { return min; }
+    public double getMax() { return max; }
+    public double getStdDev() { return stdDev; }
+    public double getP25() { return p25; }
+    public double getMedian() { return median; }
+    public double getP75() { return p75; }
+    public double getP90() { return p90; }
+
+    /** Count per grade band (A+, A, B+, B, C, F), using the same cut-offs as the grades elsewhere. */
+    public Map<String, Long> getGradeHistogram() { return gradeHistogram; }
+
+    @Override
+    public String toString() {
+        return String.format("%s: n=%d, mean=%.2f, min=%.2f, max=%.2f, sd=%.2f, p25=%.2f, median=%.2f, p75=%.2f, p90=%.2f, grades=%s",
+                group, count, mean, min, max, stdDev, p25, median, p75, p90, gradeHistogram);
+    }
+}
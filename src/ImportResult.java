@@ -0,0 +1,60 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import: row counts, timing and the per-row validation errors.
+ * Only the MAX_ERRORS messages of the lowest line numbers are kept, in line order; getErrorCount()
+ * still counts them all.
+ */
+public class ImportResult {
+    public static final int MAX_ERRORS = 1000;
+
+    private record RowError(long line, String message) {}
+
+    // Not in line order: parse errors are reported as lines are read, write errors when their chunk is flushed.
+    private final List<RowError> errors = new ArrayList<>();
+    private long rowsRead;
+    private long imported;
+    private long errorCount;
+    private long elapsedNanos;
+
+    void rowRead() { rowsRead++; }
+    void imported(long n) { imported += n; }
+    void elapsed(long nanos) { elapsedNanos = nanos; }
+
+    void error(long line, String message) {
+        errorCount++;
+        errors.add(new RowError(line, message));
+        if (errors.size() >= 2 * MAX_ERRORS) trimErrors();
+    }
+
+    private void trimErrors() {
+        errors.sort(Comparator.comparingLong(RowError::line));
+        if (errors.size() > MAX_ERRORS) errors.subList(MAX_ERRORS, errors.size()).clear();
+    }
+
+    public long getRowsRead() { return rowsRead; }
+    public long getImported() { return imported; }
+    public long getErrorCount() { return errorCount; }
+    /** "Line n: message" for the kept errors, by line number. */
+    public List<String> getErrors() {
+        trimErrors();
+        List<String> lines = new ArrayList<>(errors.size());
+        for (RowError e : errors) lines.add("Line " + e.line() + ": " + e.message());
+        return lines;
+    }
+    public double getElapsedSeconds() { return elapsedNanos / 1e9; }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : rowsRead / getElapsedSeconds();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ImportResult{Read=%d, Imported=%d, Errors=%d, Time=%.2fs, Rate=%.0f rows/s}",
+                rowsRead, imported, errorCount, getElapsedSeconds(), getRowsPerSecond());
+    }
+}
@@ -0,0 +1,836 @@
+package src;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * StudentRepository kept entirely on the heap, for tests, simulations and throwaway runs: nothing
+ * touches the disk and everything is gone on close().
+ *
+ * Students live in an int-keyed open-addressing map, with a roll index (hash), a name index ordered
+ * by (name, id) for search, and an ascending id list for id-ordered scans and keyset paging. Each
+ * student's marks are two small parallel arrays sorted by subject id.
+ *
+ * Reads share a read lock; every write runs as a transaction holding the write lock, so other threads
+ * only ever see committed state. Writes log an undo action, and a rollback replays them in reverse.
+ */
+public class InMemoryStudentRepository implements StudentRepository {
+    private static final int[] NO_IDS = new int[0];
+    private static final double[] NO_MARKS = new double[0];
+
+    /** One student with attendance and marks; only touched under the lock. */
+    private static final class Row {
+        final int id;
+        String name;
+        int age;
+        String course;
+        String roll;
+        int present;
+        int total;
+        int[] subjectIds = NO_IDS;
+        double[] marks = NO_MARKS;
+        int markCount;
+
+        Row(int id, Student s) {
+            this.id = id;
+            this.name = s.getName();
+            this.age = s.getAge();
+            this.course = s.getCourse();
+            this.roll = s.getRoll();
+        }
+
+        Student toStudent() { return new Student(id, name, age, course, roll); }
+
+        int markIndex(int subjectId) { return Arrays.binarySearch(subjectIds, 0, markCount, subjectId); }
+
+        // Summed in subject id order, like the SUM the student_performance triggers run over the index.
+        double marksTotal() {
+            double sum = 0;
+            for (int k = 0; k < markCount; k++) sum += marks[k];
+            return sum;
+        }
+
+        double percentage() { return markCount == 0 ? 0.0 : marksTotal() / markCount; }
+    }
+
+    /** A student's marks in a closed term: the arrays the Row held when the term was closed. */
+    private record TermMarks(int[] subjectIds, double[] marks, int count, double total) {}
+
+    /** A closed term and its marks by student id; never written again except to drop a deleted student. */
+    private record TermArchive(Term term, IntObjectMap<TermMarks> marks) {}
+
+    private static final Comparator<Row> BY_NAME = Comparator.<Row, String>comparing(r -> r.name).thenComparingInt(r -> r.id);
+
+    /** Undo log and hooks of the transaction bound to the current thread. */
+    private static final class Tx {
+        final List<Runnable> undo = new ArrayList<>();
+        final List<Runnable> afterCommit = new ArrayList<>();
+        final List<Runnable> onRollback = new ArrayList<>();
+        boolean rollbackOnly;
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Tx> transaction = new ThreadLocal<>();
+    private final ChangeTracker changes = new ChangeTracker();
+    // Committed subjects, readable without the lock; subjectIdsByName below is the transactional truth.
+    private final SubjectDictionary subjects = new SubjectDictionary();
+
+    private final IntObjectMap<Row> rows = new IntObjectMap<>(1024);
+    private final HashMap<String, Row> byRoll = new HashMap<>();
+    private final TreeSet<Row> byName = new TreeSet<>(BY_NAME);
+    // Ascending ids, including some already deleted (skipped on read, compacted once they are half).
+    private int[] order = new int[1024];
+    private int orderSize;
+    private int deleted;
+    private int nextStudentId = 1;
+    private final HashMap<String, Integer> subjectIdsByName = new HashMap<>();
+    // Subject names by id - 1, transactional like subjectIdsByName; names are read from here under the lock.
+    private final ArrayList<String> subjectNames = new ArrayList<>();
+    private int nextSubjectId = 1;
+    // Change log: the events numbered firstLogSeq..lastLogSeq, oldest first.
+    private final ArrayList<ChangeEvent> changeLog = new ArrayList<>();
+    private long firstLogSeq = 1;
+    private long lastLogSeq;
+    // Closed terms in id order; term ids are dense from 1, so term t is terms.get(t - 1).
+    private final ArrayList<TermArchive> terms = new ArrayList<>();
+    private final long databaseId = new Random().nextLong();
+
+    // --- Transactions ---
+    @Override
+    public <T> T inTransaction(Work<T> work) throws SQLException {
+        Tx tx = transaction.get();
+        if (tx != null) {
+            try {
+                return work.run();
+            } catch (SQLException | RuntimeException | Error e) {
+                tx.rollbackOnly = true;
+                throw e;
+            }
+        }
+        tx = new Tx();
+        T result;
+        lock.writeLock().lock();
+        transaction.set(tx);
+        try {
+            result = work.run();
+            if (tx.rollbackOnly) throw new SQLException("Transaction rolled back by an inner step.");
+        } catch (SQLException | RuntimeException | Error e) {
+            for (int i = tx.undo.size() - 1; i >= 0; i--) tx.undo.get(i).run();
+            transaction.remove();
+            lock.writeLock().unlock();
+            tx.onRollback.forEach(Runnable::run);
+            throw e;
+        }
+        transaction.remove();
+        lock.writeLock().unlock();
+        tx.afterCommit.forEach(Runnable::run);
+        return result;
+    }
+
+    @Override
+    public void afterCommit(Runnable action) {
+        Tx tx = transaction.get();
+        if (tx != null) tx.afterCommit.add(action);
+        else action.run();
+    }
+
+    @Override
+    public void onRollback(Runnable action) {
+        Tx tx = transaction.get();
+        if (tx != null) tx.onRollback.add(action);
+    }
+
+    // Only called from inside inTransaction, where the write lock is held.
+    private void undo(Runnable action) {
+        transaction.get().undo.add(action);
+    }
+
+    private void recordChange(int studentId) { afterCommit(() -> changes.record(studentId)); }
+
+    // --- Change tracking ---
+    @Override
+    public long getChangeVersion() { return changes.getVersion(); }
+
+    @Override
+    public int[] getChangedStudentsSince(long version) { return changes.changedSince(version); }
+
+    // --- Change log ---
+    // Appended by each write in the same order as DatabaseHelper's triggers log it, and undone with it.
+    private void logChange(ChangeEvent.Entity entity, ChangeEvent.Op op, int studentId, int subjectId,
+                           double mark, int present, int total) {
+        changeLog.add(new ChangeEvent(++lastLogSeq, entity, op, studentId, subjectId, mark, present, total,
+                System.currentTimeMillis()));
+        undo(() -> {
+            changeLog.remove(changeLog.size() - 1);
+            lastLogSeq--;
+        });
+    }
+
+    @Override
+    public List<ChangeEvent> readChanges(long afterSeq, int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("Limit must be positive.");
+        lock.readLock().lock();
+        try {
+            int from = (int) Math.max(0, afterSeq + 1 - firstLogSeq);
+            int to = (int) Math.min(changeLog.size(), (long) from + limit);
+            return from >= to ? new ArrayList<>() : new ArrayList<>(changeLog.subList(from, to));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long getLastChangeSeq() {
+        lock.readLock().lock();
+        try {
+            return lastLogSeq;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int pruneChanges(long throughSeq) throws SQLException {
+        return inTransaction(() -> {
+            int n = (int) Math.min(changeLog.size(), Math.max(0, throughSeq + 1 - firstLogSeq));
+            if (n == 0) return 0;
+            List<ChangeEvent> removed = new ArrayList<>(changeLog.subList(0, n));
+            changeLog.subList(0, n).clear();
+            firstLogSeq += n;
+            undo(() -> {
+                changeLog.addAll(0, removed);
+                firstLogSeq -= n;
+            });
+            return n;
+        });
+    }
+
+    // Nothing outlives the process, so a fresh id per instance is all a snapshot file needs to tell.
+    @Override
+    public long getDatabaseId() { return databaseId; }
+
+    // --- Students ---
+    @Override
+    public int insertStudent(Student s) throws SQLException {
+        return inTransaction(() -> {
+            if (byRoll.containsKey(s.getRoll())) throw new SQLException("UNIQUE constraint failed: students.roll");
+            Row row = new Row(nextStudentId++, s);
+            link(row);
+            appendOrder(row.id);
+            undo(() -> {
+                unlink(row);
+                orderSize--;        // undone in reverse, so this id is still the last one appended
+                nextStudentId--;
+            });
+            s.setId(row.id);
+            logChange(ChangeEvent.Entity.STUDENT, ChangeEvent.Op.INSERT, row.id, 0, 0, 0, 0);
+            recordChange(row.id);
+            return row.id;
+        });
+    }
+
+    @Override
+    public boolean updateStudent(Student s) throws SQLException {
+        return inTransaction(() -> {
+            Row row = rows.get(s.getId());
+            if (row == null) return false;
+            Row other = byRoll.get(s.getRoll());
+            if (other != null && other != row) throw new SQLException("UNIQUE constraint failed: students.roll");
+            Student before = row.toStudent();
+            rewrite(row, s);
+            undo(() -> rewrite(row, before));
+            logChange(ChangeEvent.Entity.STUDENT, ChangeEvent.Op.UPDATE, row.id, 0, 0, 0, 0);
+            recordChange(row.id);
+            return true;
+        });
+    }
+
+    @Override
+    public boolean deleteStudent(int id) throws SQLException {
+        return inTransaction(() -> {
+            Row row = rows.get(id);
+            if (row == null) return false;
+            unlink(row);
+            deleted++;
+            undo(() -> {
+                link(row);
+                if (!restoreOrder(row.id)) deleted--;
+            });
+            if (deleted > 64 && deleted * 2 > orderSize) compactOrder();
+            for (TermArchive archive : terms) {
+                TermMarks archived = archive.marks().remove(id);
+                if (archived != null) undo(() -> archive.marks().put(id, archived));
+            }
+            for (int k = 0; k < row.markCount; k++) {
+                logChange(ChangeEvent.Entity.MARK, ChangeEvent.Op.DELETE, id, row.subjectIds[k], row.marks[k], 0, 0);
+            }
+            logChange(ChangeEvent.Entity.STUDENT, ChangeEvent.Op.DELETE, id, 0, 0, 0, 0);
+            recordChange(id);
+            return true;
+        });
+    }
+
+    @Override
+    public Student getStudentById(int id) {
+        lock.readLock().lock();
+        try {
+            Row row = rows.get(id);
+            return row == null ? null : row.toStudent();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Student getStudentByRoll(String roll) {
+        lock.readLock().lock();
+        try {
+            Row row = byRoll.get(roll);
+            return row == null ? null : row.toStudent();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Walks the name index once, so each rank bucket is already in name order. */
+    @Override
+    public List<Student> searchStudentsByName(String query, int limit) {
+        String q = query.trim().toLowerCase(Locale.ROOT);
+        List<List<Student>> ranks = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        lock.readLock().lock();
+        try {
+            for (Row row : byName) {
+                String name = row.name.toLowerCase(Locale.ROOT);
+                int at = name.indexOf(q);
+                if (at < 0) continue;
+                int rank = name.equals(q) ? 0 : at == 0 ? 1 : name.contains(" " + q) ? 2 : 3;
+                ranks.get(rank).add(row.toStudent());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Student> list = new ArrayList<>();
+        for (List<Student> bucket : ranks) list.addAll(bucket);
+        return limit >= 0 && list.size() > limit ? new ArrayList<>(list.subList(0, limit)) : list;
+    }
+
+    @Override
+    public List<Student> getAllStudents() {
+        lock.readLock().lock();
+        try {
+            List<Student> list = new ArrayList<>(rows.size());
+            for (int i = 0; i < orderSize; i++) {
+                Row row = rows.get(order[i]);
+                if (row != null) list.add(row.toStudent());
+            }
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Student> listStudentsAfter(String course, int lastId, int pageSize) {
+        if (pageSize <= 0) throw new IllegalArgumentException("Page size must be positive.");
+        List<Student> list = new ArrayList<>(Math.min(pageSize, 1024));
+        lock.readLock().lock();
+        try {
+            int from = Arrays.binarySearch(order, 0, orderSize, lastId);
+            from = from < 0 ? -from - 1 : from + 1;
+            for (int i = from; i < orderSize && list.size() < pageSize; i++) {
+                Row row = rows.get(order[i]);
+                if (row != null && (course == null || course.equals(row.course))) list.add(row.toStudent());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return list;
+    }
+
+    private void link(Row row) {
+        rows.put(row.id, row);
+        byRoll.put(row.roll, row);
+        byName.add(row);
+    }
+
+    private void unlink(Row row) {
+        rows.remove(row.id);
+        byRoll.remove(row.roll);
+        byName.remove(row);
+    }
+
+    // The name is part of the name index key, so the row leaves the indexes while it changes.
+    private void rewrite(Row row, Student s) {
+        byRoll.remove(row.roll);
+        byName.remove(row);
+        row.name = s.getName();
+        row.age = s.getAge();
+        row.course = s.getCourse();
+        row.roll = s.getRoll();
+        byRoll.put(row.roll, row);
+        byName.add(row);
+    }
+
+    private void appendOrder(int id) {
+        if (orderSize == order.length) order = Arrays.copyOf(order, orderSize * 2);
+        order[orderSize++] = id;
+    }
+
+    /** Puts a deleted id back in the id list; false if it was still there (not yet compacted away). */
+    private boolean restoreOrder(int id) {
+        int at = Arrays.binarySearch(order, 0, orderSize, id);
+        if (at >= 0) return false;
+        at = -at - 1;
+        if (orderSize == order.length) order = Arrays.copyOf(order, orderSize * 2);
+        System.arraycopy(order, at, order, at + 1, orderSize - at);
+        order[at] = id;
+        orderSize++;
+        return true;
+    }
+
+    private void compactOrder() {
+        int n = 0;
+        for (int i = 0; i < orderSize; i++) {
+            if (rows.get(order[i]) != null) order[n++] = order[i];
+        }
+        orderSize = n;
+        deleted = 0;
+    }
+
+    // --- Subjects ---
+    @Override
+    public int ensureSubject(String name) throws SQLException {
+        int id = subjects.idOf(name);
+        if (id >= 0) return id;
+        return inTransaction(() -> {
+            Integer existing = subjectIdsByName.get(name);
+            if (existing != null) return existing;
+            int subjectId = nextSubjectId++;
+            subjectIdsByName.put(name, subjectId);
+            subjectNames.add(name);
+            undo(() -> {
+                subjectIdsByName.remove(name);
+                subjectNames.remove(subjectNames.size() - 1);
+                nextSubjectId--;
+            });
+            afterCommit(() -> subjects.put(subjectId, name));
+            return subjectId;
+        });
+    }
+
+    @Override
+    public int findSubjectId(String name) { return subjects.idOf(name); }
+
+    @Override
+    public String getSubjectName(int subjectId) { return subjects.nameOf(subjectId); }
+
+    // Under the lock: sees subjects created by the current thread's open transaction, which subjects does not.
+    private String subjectName(int subjectId) { return subjectNames.get(subjectId - 1); }
+
+    @Override
+    public List<String> listSubjects() {
+        lock.readLock().lock();
+        try {
+            List<String> names = new ArrayList<>(subjectIdsByName.keySet());
+            Collections.sort(names);
+            return names;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Marks ---
+    @Override
+    public void upsertMark(int studentId, String subjectName, double marks) throws SQLException {
+        inTransaction(() -> upsertMark(studentId, ensureSubject(subjectName), marks));
+    }
+
+    @Override
+    public void upsertMark(int studentId, int subjectId, double marks) throws SQLException {
+        inTransaction(() -> {
+            Row row = rows.get(studentId);
+            // Subject ids are handed out densely from 1 (and handed back on rollback).
+            if (row == null || subjectId <= 0 || subjectId >= nextSubjectId) {
+                throw new SQLException("FOREIGN KEY constraint failed");
+            }
+            int k = row.markIndex(subjectId);
+            if (k >= 0) {
+                double before = row.marks[k];
+                row.marks[k] = marks;
+                undo(() -> row.marks[row.markIndex(subjectId)] = before);
+                logChange(ChangeEvent.Entity.MARK, ChangeEvent.Op.UPDATE, studentId, subjectId, marks, 0, 0);
+            } else {
+                insertMark(row, -k - 1, subjectId, marks);
+                undo(() -> removeMark(row, row.markIndex(subjectId)));
+                logChange(ChangeEvent.Entity.MARK, ChangeEvent.Op.INSERT, studentId, subjectId, marks, 0, 0);
+            }
+            recordChange(studentId);
+        });
+    }
+
+    @Override
+    public boolean deleteMark(int studentId, String subjectName) throws SQLException {
+        int subjectId = findSubjectId(subjectName);
+        if (subjectId < 0) return false;
+        return inTransaction(() -> {
+            Row row = rows.get(studentId);
+            int k = row == null ? -1 : row.markIndex(subjectId);
+            if (k < 0) return false;
+            double before = row.marks[k];
+            removeMark(row, k);
+            undo(() -> insertMark(row, -row.markIndex(subjectId) - 1, subjectId, before));
+            logChange(ChangeEvent.Entity.MARK, ChangeEvent.Op.DELETE, studentId, subjectId, before, 0, 0);
+            recordChange(studentId);
+            return true;
+        });
+    }
+
+    @Override
+    public Map<String, Double> getMarksForStudent(int studentId) {
+        TreeMap<String, Double> byName = new TreeMap<>();
+        lock.readLock().lock();
+        try {
+            Row row = rows.get(studentId);
+            if (row != null) {
+                for (int k = 0; k < row.markCount; k++) byName.put(subjectName(row.subjectIds[k]), row.marks[k]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new LinkedHashMap<>(byName);
+    }
+
+    @Override
+    public Performance readMarks(int studentId, Performance into) {
+        into.reset();
+        lock.readLock().lock();
+        try {
+            Row row = rows.get(studentId);
+            if (row != null) {
+                double sum = 0.0;
+                for (int k = 0; k < row.markCount; k++) sum += row.marks[k];
+                into.set(row.subjectIds, row.marks, 0, row.markCount, sum);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return into;
+    }
+
+    private static void insertMark(Row row, int at, int subjectId, double mark) {
+        if (row.markCount == row.subjectIds.length) {
+            int n = Math.max(4, row.markCount * 2);
+            row.subjectIds = Arrays.copyOf(row.subjectIds, n);
+            row.marks = Arrays.copyOf(row.marks, n);
+        }
+        System.arraycopy(row.subjectIds, at, row.subjectIds, at + 1, row.markCount - at);
+        System.arraycopy(row.marks, at, row.marks, at + 1, row.markCount - at);
+        row.subjectIds[at] = subjectId;
+        row.marks[at] = mark;
+        row.markCount++;
+    }
+
+    private static void removeMark(Row row, int at) {
+        System.arraycopy(row.subjectIds, at + 1, row.subjectIds, at, row.markCount - at - 1);
+        System.arraycopy(row.marks, at + 1, row.marks, at, row.markCount - at - 1);
+        row.markCount--;
+    }
+
+    // --- Terms ---
+    /**
+     * Hands each student's mark arrays to the archive as they are, rather than copying them. Holds the
+     * write lock for the whole pass over the students, so every other read and write waits for it.
+     */
+    @Override
+    public Term closeTerm(String name) throws SQLException {
+        return inTransaction(() -> {
+            for (TermArchive archive : terms) {
+                if (archive.term().getName().equals(name)) throw new SQLException("UNIQUE constraint failed: terms.name");
+            }
+            TermArchive archive = new TermArchive(new Term(terms.size() + 1, name, System.currentTimeMillis()),
+                    new IntObjectMap<>(Math.max(16, rows.size())));
+            terms.add(archive);
+            undo(() -> terms.remove(terms.size() - 1));
+            for (int i = 0; i < orderSize; i++) {
+                Row row = rows.get(order[i]);
+                if (row == null || row.markCount == 0) continue;
+                TermMarks archived = new TermMarks(row.subjectIds, row.marks, row.markCount, row.marksTotal());
+                archive.marks().put(row.id, archived);
+                row.subjectIds = NO_IDS;
+                row.marks = NO_MARKS;
+                row.markCount = 0;
+                undo(() -> {
+                    row.subjectIds = archived.subjectIds();
+                    row.marks = archived.marks();
+                    row.markCount = archived.count();
+                });
+            }
+            logChange(ChangeEvent.Entity.TERM, ChangeEvent.Op.INSERT, 0, 0, 0, 0, 0);
+            afterCommit(changes::recordAll);
+            return archive.term();
+        });
+    }
+
+    @Override
+    public List<Term> listTerms() {
+        lock.readLock().lock();
+        try {
+            List<Term> list = new ArrayList<>(terms.size());
+            for (TermArchive archive : terms) list.add(archive.term());
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Double> getMarksForStudent(int studentId, int termId) {
+        if (termId == CURRENT_TERM) return getMarksForStudent(studentId);
+        TreeMap<String, Double> byName = new TreeMap<>();
+        lock.readLock().lock();
+        try {
+            TermMarks archived = archive(termId).marks().get(studentId);
+            if (archived != null) {
+                for (int k = 0; k < archived.count(); k++) {
+                    byName.put(subjectName(archived.subjectIds()[k]), archived.marks()[k]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new LinkedHashMap<>(byName);
+    }
+
+    @Override
+    public double getPercentageForStudent(int studentId, int termId) {
+        lock.readLock().lock();
+        try {
+            if (termId == CURRENT_TERM) {
+                Row row = rows.get(studentId);
+                return row == null ? 0.0 : row.percentage();
+            }
+            TermMarks archived = archive(termId).marks().get(studentId);
+            return archived == null ? 0.0 : archived.total() / archived.count();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<TermResult> getTermHistory(int studentId) {
+        List<TermResult> history = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (TermArchive archive : terms) {
+                TermMarks archived = archive.marks().get(studentId);
+                if (archived != null) {
+                    Term term = archive.term();
+                    history.add(new TermResult(term.getId(), term.getName(), archived.total(), archived.count()));
+                }
+            }
+            Row row = rows.get(studentId);
+            if (row != null && row.markCount > 0) {
+                history.add(new TermResult(CURRENT_TERM, "Current", row.marksTotal(), row.markCount));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return history;
+    }
+
+    @Override
+    public List<TermDelta> getTermDeltas(int fromTermId, int toTermId) {
+        // Per course, and for everyone: {students, from sum, to sum, improved, declined}.
+        TreeMap<String, double[]> groups = new TreeMap<>();
+        double[] all = new double[5];
+        lock.readLock().lock();
+        try {
+            IntObjectMap<TermMarks> from = fromTermId == CURRENT_TERM ? null : archive(fromTermId).marks();
+            IntObjectMap<TermMarks> to = toTermId == CURRENT_TERM ? null : archive(toTermId).marks();
+            for (int i = 0; i < orderSize; i++) {
+                Row row = rows.get(order[i]);
+                if (row == null) continue;
+                double a = termPercentage(row, from), b = termPercentage(row, to);
+                if (Double.isNaN(a) || Double.isNaN(b)) continue;
+                for (double[] g : new double[][]{groups.computeIfAbsent(row.course, c -> new double[5]), all}) {
+                    g[0]++;
+                    g[1] += a;
+                    g[2] += b;
+                    if (b > a) g[3]++;
+                    else if (b < a) g[4]++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<TermDelta> list = new ArrayList<>(groups.size() + 1);
+        groups.forEach((course, g) -> list.add(delta(course, g)));
+        if (all[0] > 0) list.add(delta(TermDelta.ALL, all));
+        return list;
+    }
+
+    // The student's percentage in a closed term's archive, or the open term when null; NaN if they have no marks there.
+    private static double termPercentage(Row row, IntObjectMap<TermMarks> term) {
+        if (term == null) return row.markCount == 0 ? Double.NaN : row.percentage();
+        TermMarks archived = term.get(row.id);
+        return archived == null ? Double.NaN : archived.total() / archived.count();
+    }
+
+    private static TermDelta delta(String group, double[] g) {
+        return new TermDelta(group, (long) g[0], g[1] / g[0], g[2] / g[0], (long) g[3], (long) g[4]);
+    }
+
+    private TermArchive archive(int termId) {
+        if (termId < 1 || termId > terms.size()) throw new IllegalArgumentException("Unknown term " + termId + ".");
+        return terms.get(termId - 1);
+    }
+
+    // --- Attendance ---
+    @Override
+    public void addAttendance(int studentId, int addPresent, int addTotal) throws SQLException {
+        inTransaction(() -> {
+            Row row = rows.get(studentId);
+            if (row == null) return;
+            row.present += addPresent;
+            row.total += addTotal;
+            undo(() -> {
+                row.present -= addPresent;
+                row.total -= addTotal;
+            });
+            logChange(ChangeEvent.Entity.ATTENDANCE, ChangeEvent.Op.UPDATE, studentId, 0, 0, row.present, row.total);
+            recordChange(studentId);
+        });
+    }
+
+    @Override
+    public void addAttendanceBatch(Map<Integer, int[]> deltas) throws SQLException {
+        inTransaction(() -> {
+            for (Map.Entry<Integer, int[]> e : deltas.entrySet()) {
+                addAttendance(e.getKey(), e.getValue()[0], e.getValue()[1]);
+            }
+        });
+    }
+
+    @Override
+    public int[] getAttendance(int studentId) {
+        lock.readLock().lock();
+        try {
+            Row row = rows.get(studentId);
+            return row == null ? new int[]{0, 0} : new int[]{row.present, row.total};
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Bulk reads ---
+    @Override
+    public void readSnapshotRows(int[] onlyIds, AnalyticsSnapshot.RowSink sink) {
+        lock.readLock().lock();
+        try {
+            int n = onlyIds == null ? orderSize : onlyIds.length;
+            for (int i = 0; i < n; i++) {
+                Row row = rows.get(onlyIds == null ? order[i] : onlyIds[i]);
+                if (row == null) continue;
+                sink.student(row.id, row.name, row.age, row.course, row.roll, row.marksTotal(), row.markCount,
+                        row.percentage(), row.present, row.total);
+                for (int k = 0; k < row.markCount; k++) sink.mark(row.subjectIds[k], row.marks[k]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Holds the read lock throughout, so each must not write to this repository. */
+    @Override
+    public long forEachResultCard(Consumer<ResultCard> each) {
+        long count = 0;
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < orderSize; i++) {
+                Row row = rows.get(order[i]);
+                if (row == null) continue;
+                Integer[] byName = new Integer[row.markCount];
+                for (int k = 0; k < byName.length; k++) byName[k] = k;
+                Arrays.sort(byName, Comparator.comparing(k -> subjectName(row.subjectIds[k])));
+                String[] names = new String[byName.length];
+                double[] marks = new double[byName.length];
+                for (int k = 0; k < byName.length; k++) {
+                    names[k] = subjectName(row.subjectIds[byName[k]]);
+                    marks[k] = row.marks[byName[k]];
+                }
+                each.accept(new ResultCard(row.toStudent(), names, marks, row.present, row.total));
+                count++;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return count;
+    }
+
+    @Override
+    public List<GroupStats> getSubjectStats(String course) {
+        String only = course == null || course.isBlank() ? null : course.trim();
+        IntObjectMap<double[]> values = new IntObjectMap<>();
+        Map<Integer, Integer> counts = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < orderSize; i++) {
+                Row row = rows.get(order[i]);
+                if (row == null || (only != null && !only.equals(row.course))) continue;
+                for (int k = 0; k < row.markCount; k++) {
+                    int subjectId = row.subjectIds[k];
+                    int n = counts.merge(subjectId, 1, Integer::sum);
+                    double[] v = values.get(subjectId);
+                    if (v == null || v.length < n) values.put(subjectId, v = v == null ? new double[64] : Arrays.copyOf(v, v.length * 2));
+                    v[n - 1] = row.marks[k];
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<GroupStats> list = new ArrayList<>(counts.size());
+        counts.forEach((subjectId, n) -> {
+            String name = subjects.nameOf(subjectId);
+            list.add(GroupStats.of(name == null ? "#" + subjectId : name, values.get(subjectId), n));
+        });
+        list.sort(Comparator.comparing(GroupStats::getGroup));
+        return list;
+    }
+
+    @Override
+    public List<GroupStats> getCourseStats() {
+        TreeMap<String, double[]> values = new TreeMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < orderSize; i++) {
+                Row row = rows.get(order[i]);
+                if (row == null) continue;
+                int n = counts.merge(row.course, 1, Integer::sum);
+                double[] v = values.get(row.course);
+                if (v == null || v.length < n) values.put(row.course, v = v == null ? new double[64] : Arrays.copyOf(v, v.length * 2));
+                v[n - 1] = row.percentage();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<GroupStats> list = new ArrayList<>(values.size());
+        values.forEach((c, v) -> list.add(GroupStats.of(c, v, counts.get(c))));
+        return list;
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            rows.clear();
+            byRoll.clear();
+            byName.clear();
+            orderSize = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -1,4 +1,10 @@
+package src;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
@@ -6,12 +12,39 @@ import java.util.Scanner;
  * Console UI: menu-driven program entry point.
  */
 public class Main {
+    private static final int SEARCH_LIMIT = 50;
+    private static final int PAGE_SIZE = 20;
+    private static final int DEFAULT_PORT = 8080;
+    // Analytics snapshot kept next to students.db, so the next start skips reading every row.
+    private static final Path SNAPSHOT_FILE = Path.of("students.snap");
     private static final Scanner scanner = new Scanner(System.in);
-    private static final DatabaseHelper db = new DatabaseHelper();
-    private static final StudentManager manager = new StudentManager(db);
+    private static StudentRepository db;
+    private static StudentManager manager;
+    private static boolean persistent;
 
     public static void main(String[] args) {
-        System.out.println("=== Smart Student Information & Performance Track (SQLite) ===");
+        List<String> rest = new ArrayList<>();
+        String engine = "sqlite";
+        for (String arg : args) {
+            if (arg.startsWith("--engine=")) engine = arg.substring("--engine=".length());
+            else rest.add(arg);
+        }
+        try {
+            db = openEngine(engine);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        manager = new StudentManager(db);
+        persistent = engine.equals("sqlite");
+        if (persistent) warmStart();
+        if (!rest.isEmpty() && rest.get(0).equals("--server")) {
+            serve(rest.size() > 1 ? Integer.parseInt(rest.get(1)) : DEFAULT_PORT);
+            return;
+        }
+        // Runs on normal exit and on Ctrl+C, so buffered attendance is always written.
+        Runtime.getRuntime().addShutdownHook(new Thread(Main::shutdown));
+        System.out.println("=== Smart Student Information & Performance Track (" + engine + ") ===");
         boolean exit = false;
         while (!exit) {
             printMenu();
@@ -29,7 +62,13 @@ public class Main {
                     case 9 -> topPerformersFlow();
                     case 10 -> summaryReportFlow();
                     case 11 -> listStudentsFlow();
-                    case 12 -> { exit = true; System.out.println("Exiting... Goodbye!"); }
+                    case 12 -> bulkImportFlow();
+                    case 13 -> exportResultCardsFlow();
+                    case 14 -> statisticsFlow();
+                    case 15 -> metricsFlow();
+                    case 16 -> exportDataFlow();
+                    case 17 -> termsFlow();
+                    case 18 -> { exit = true; System.out.println("Exiting... Goodbye!"); }
                     default -> System.out.println("Invalid choice. Try again.");
                 }
             } catch (IllegalArgumentException e) {
@@ -43,6 +82,59 @@ public class Main {
         }
     }
 
+    private static void serve(int port) {
+        try {
+            StudentServer server = new StudentServer(manager, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                shutdown();
+            }));
+            server.start();
+            System.out.println("Serving the student API on http://localhost:" + server.getPort() + "/ (Ctrl+C to stop)");
+        } catch (IOException e) {
+            System.out.println("Could not start server: " + e.getMessage());
+            shutdown();
+        }
+    }
+
+    /** sqlite (students.db, the default), sqlite-memory or memory; the last two start empty and keep nothing. */
+    private static StudentRepository openEngine(String name) {
+        return switch (name) {
+            case "sqlite" -> new DatabaseHelper();
+            case "sqlite-memory" -> DatabaseHelper.inMemory();
+            case "memory" -> new InMemoryStudentRepository();
+            default -> throw new IllegalArgumentException("Unknown engine '" + name + "' (use sqlite, sqlite-memory or memory).");
+        };
+    }
+
+    private static void warmStart() {
+        if (!Files.exists(SNAPSHOT_FILE)) return;
+        long start = System.nanoTime();
+        try {
+            AnalyticsSnapshot snap = manager.warmStart(SNAPSHOT_FILE);
+            System.out.printf("Analytics for %d students loaded from %s in %.1f ms.%n",
+                    snap.size(), SNAPSHOT_FILE, (System.nanoTime() - start) / 1e6);
+        } catch (IOException | SQLException e) {
+            System.out.println("Ignoring analytics snapshot: " + e.getMessage());
+        }
+    }
+
+    private static void shutdown() {
+        if (persistent) {
+            try {
+                manager.saveSnapshot(SNAPSHOT_FILE);
+            } catch (IOException | SQLException e) {
+                System.out.println("Could not save analytics snapshot: " + e.getMessage());
+            }
+        }
+        try {
+            manager.close();
+        } catch (SQLException e) {
+            System.out.println("Database error while saving attendance: " + e.getMessage());
+        }
+        db.close();
+    }
+
     private static void printMenu() {
         System.out.println("\n---- Menu ----");
         System.out.println("1. Add Student");
@@ -56,7 +148,13 @@ public class Main {
         System.out.println("9. Top Performers & Ranking");
         System.out.println("10. Summary Report");
         System.out.println("11. List All Students");
-        System.out.println("12. Exit");
+        System.out.println("12. Bulk Import (CSV/TSV)");
+        System.out.println("13. Export All Result Cards");
+        System.out.println("14. Subject & Course Statistics");
+        System.out.println("15. Database Metrics");
+        System.out.println("16. Export Data (CSV/NDJSON/columnar)");
+        System.out.println("17. Terms & Trends");
+        System.out.println("18. Exit");
     }
 
     // --- Flows ---
@@ -112,9 +210,10 @@ public class Main {
             }
             case 2 -> {
                 String name = readLine("Enter name query: ");
-                List<Student> list = manager.searchByName(name);
+                List<Student> list = manager.searchByName(name, SEARCH_LIMIT);
                 if (list.isEmpty()) System.out.println("No students found.");
                 else list.forEach(System.out::println);
+                if (list.size() == SEARCH_LIMIT) System.out.println("(showing the first " + SEARCH_LIMIT + " matches)");
             }
             case 3 -> {
                 String roll = readLine("Enter roll: ");
@@ -174,7 +273,7 @@ public class Main {
         boolean ok = manager.updateAttendance(id, addPresent, addTotal);
         if (!ok) System.out.println("Student not found.");
         else {
-            double pct = db.getAttendancePercentage(id);
+            double pct = manager.getAttendancePercentage(id);
             System.out.printf("Attendance now: %.2f%%%n", pct);
             if (pct < 75.0) System.out.println("Warning: Attendance below 75%.");
         }
@@ -183,42 +282,185 @@ public class Main {
     private static void topPerformersFlow() throws SQLException {
         System.out.println("\n[Top Performers & Ranking]");
         int count = readInt("How many top students to list? ");
-        List<Student> ranked = manager.getRankedStudents();
+        if (count <= 0) { System.out.println("Enter a count of at least 1."); return; }
+        List<RankedStudent> ranked = manager.getTopStudents(count);
         if (ranked.isEmpty()) { System.out.println("No students available."); return; }
 
         int rank = 1;
-        for (Student s : ranked) {
-            if (rank > Math.max(count, 0)) break;
-            double pct = db.getPercentageForStudent(s.getId());
-            String grade = db.getGradeForPercentage(pct);
-            double att = db.getAttendancePercentage(s.getId());
+        for (RankedStudent r : ranked) {
             System.out.printf("#%d ID %d - %s | %%: %.2f | Grade: %s | Attendance: %.2f%%%n",
                     rank++,
-                    s.getId(),
-                    s.getName(),
-                    pct,
-                    grade,
-                    att);
+                    r.getId(),
+                    r.getName(),
+                    r.getPercentage(),
+                    r.getGrade(),
+                    r.getAttendancePercentage());
         }
     }
 
     private static void summaryReportFlow() throws SQLException {
-        System.out.println(manager.buildSummaryReport());
+        SummaryStats stats = manager.getSummaryStats(null);
+        System.out.println(manager.buildSummaryReport(stats));
+        System.out.println("Grade Distribution: " + manager.getGradeDistribution());
         System.out.println("[All Students]");
-        for (Student s : manager.getAllStudents()) {
-            double pct = db.getPercentageForStudent(s.getId());
-            double att = db.getAttendancePercentage(s.getId());
-            String grade = db.getGradeForPercentage(pct);
-            System.out.printf("ID %d - %s | %%: %.2f | Grade: %s | Attendance: %.2f%%%n",
-                    s.getId(), s.getName(), pct, grade, att);
+        int lastId = 0;
+        while (true) {
+            // One extra row tells us whether another page exists without a second query.
+            List<RankedStudent> page = manager.getSummaryPage(lastId, PAGE_SIZE + 1);
+            int shown = Math.min(page.size(), PAGE_SIZE);
+            for (RankedStudent r : page.subList(0, shown)) {
+                System.out.printf("ID %d - %s | %%: %.2f | Grade: %s | Attendance: %.2f%%%n",
+                        r.getId(), r.getName(), r.getPercentage(), r.getGrade(), r.getAttendancePercentage());
+            }
+            if (page.size() <= PAGE_SIZE || !nextPage()) return;
+            lastId = page.get(shown - 1).getId();
+        }
+    }
+
+    private static void statisticsFlow() throws SQLException {
+        System.out.println("\n[Statistics]");
+        System.out.println("1) Per subject  2) Per subject within a course  3) Per course (student percentages)");
+        int opt = readInt("Option: ");
+        List<GroupStats> stats;
+        switch (opt) {
+            case 1 -> stats = manager.getSubjectStats(null);
+            case 2 -> stats = manager.getSubjectStats(readLine("Course: "));
+            case 3 -> stats = manager.getCourseStats();
+            default -> { System.out.println("Invalid option."); return; }
+        }
+        if (stats.isEmpty()) { System.out.println("No data available."); return; }
+        for (GroupStats g : stats) {
+            System.out.printf("%s (%d)%n", g.getGroup(), g.getCount());
+            System.out.printf("  Mean: %.2f | Std Dev: %.2f | Min: %.2f | Max: %.2f%n",
+                    g.getMean(), g.getStdDev(), g.getMin(), g.getMax());
+            System.out.printf("  P25: %.2f | Median: %.2f | P75: %.2f | P90: %.2f%n",
+                    g.getP25(), g.getMedian(), g.getP75(), g.getP90());
+            System.out.println("  Grades: " + g.getGradeHistogram());
+        }
+    }
+
+    private static void exportDataFlow() throws SQLException, IOException {
+        System.out.println("\n[Export Data]");
+        System.out.println("1) Students (with attendance)  2) Marks");
+        int opt = readInt("Option: ");
+        DataExporter.Dataset dataset;
+        switch (opt) {
+            case 1 -> dataset = DataExporter.Dataset.STUDENTS;
+            case 2 -> dataset = DataExporter.Dataset.MARKS;
+            default -> { System.out.println("Invalid option."); return; }
+        }
+        Path file = Path.of(readLine("Output file (.csv, .ndjson or .sscf): "));
+        ExportResult result = manager.exportData(dataset, file);
+        System.out.printf("Exported %d rows (%.1f MB) in %.2fs (%.0f rows/s)%n",
+                result.getRows(), result.getBytes() / 1048576.0, result.getElapsedSeconds(), result.getRowsPerSecond());
+    }
+
+    private static void termsFlow() throws SQLException {
+        System.out.println("\n[Terms & Trends]");
+        List<Term> terms = manager.listTerms();
+        if (terms.isEmpty()) System.out.println("No closed terms yet.");
+        else terms.forEach(t -> System.out.println("  " + t));
+        System.out.println("1) Close current term  2) Student trend  3) Cohort change between terms  0) Back");
+        int opt = readInt("Option: ");
+        switch (opt) {
+            case 0 -> { }
+            case 1 -> {
+                String name = readLine("Name for the term being closed: ");
+                if (!readLine("All current marks will be archived and cleared. Continue? (y/n): ").equalsIgnoreCase("y")) return;
+                Term term = manager.closeTerm(name);
+                System.out.println("Closed " + term + ". The new term starts with no marks.");
+            }
+            case 2 -> {
+                int id = readInt("Student ID: ");
+                List<TermResult> history = manager.getTermHistory(id);
+                if (history.isEmpty()) { System.out.println("No marks in any term."); return; }
+                for (TermResult r : history) {
+                    System.out.printf("%-20s Subjects: %d | Percentage: %.2f%% | Grade: %s%n",
+                            r.getTermName(), r.getSubjects(), r.getPercentage(), r.getGrade());
+                }
+            }
+            case 3 -> {
+                int from = readInt("From term ID (0 = current): ");
+                int to = readInt("To term ID (0 = current): ");
+                List<TermDelta> deltas = manager.getTermDeltas(from, to);
+                if (deltas.isEmpty()) { System.out.println("No students have marks in both terms."); return; }
+                for (TermDelta d : deltas) {
+                    System.out.printf("%-12s Students: %d | Avg: %.2f%% -> %.2f%% (%+.2f) | Improved: %d | Declined: %d | Unchanged: %d%n",
+                            d.getGroup(), d.getStudents(), d.getFromAverage(), d.getToAverage(), d.getMeanDelta(),
+                            d.getImproved(), d.getDeclined(), d.getUnchanged());
+                }
+            }
+            default -> System.out.println("Invalid option.");
+        }
+    }
+
+    private static void metricsFlow() throws IOException {
+        if (!(db instanceof DatabaseHelper sqlite)) { System.out.println("Metrics are collected by the SQLite engines only."); return; }
+        DbMetrics metrics = sqlite.getMetrics();
+        System.out.println(metrics.buildReport());
+        System.out.println("1) " + (metrics.isEnabled() ? "Stop" : "Start") + " collecting  2) Reset  3) Dump to file (.json, or .prom for Prometheus)  0) Back");
+        int opt = readInt("Option: ");
+        switch (opt) {
+            case 0 -> { }
+            case 1 -> {
+                metrics.setEnabled(!metrics.isEnabled());
+                System.out.println("Metrics collection " + (metrics.isEnabled() ? "started." : "stopped."));
+            }
+            case 2 -> { metrics.reset(); System.out.println("Metrics reset."); }
+            case 3 -> {
+                Path file = Path.of(readLine("Output file: "));
+                metrics.dump(file);
+                System.out.println("Metrics written to " + file);
+            }
+            default -> System.out.println("Invalid option.");
         }
     }
 
     private static void listStudentsFlow() throws SQLException {
         System.out.println("\n[Students]");
-        List<Student> list = manager.getAllStudents();
-        if (list.isEmpty()) { System.out.println("No students found."); return; }
-        for (Student s : list) System.out.println(s);
+        String course = readLine("Course (blank for all): ");
+        String filter = course.isEmpty() ? null : course;
+        int lastId = 0;
+        while (true) {
+            List<Student> page = manager.listStudentsAfter(filter, lastId, PAGE_SIZE + 1);
+            if (page.isEmpty() && lastId == 0) { System.out.println("No students found."); return; }
+            int shown = Math.min(page.size(), PAGE_SIZE);
+            for (Student s : page.subList(0, shown)) System.out.println(s);
+            if (page.size() <= PAGE_SIZE || !nextPage()) return;
+            lastId = page.get(shown - 1).getId();
+        }
+    }
+
+    private static void bulkImportFlow() throws SQLException, IOException {
+        System.out.println("\n[Bulk Import]");
+        if (!(db instanceof DatabaseHelper sqlite)) { System.out.println("Bulk import needs a SQLite engine."); return; }
+        System.out.println("1) Students (name,age,course,roll)  2) Marks (roll,subject,marks)  3) Attendance (roll,present,total)");
+        int opt = readInt("Option: ");
+        BulkImporter.Kind kind;
+        switch (opt) {
+            case 1 -> kind = BulkImporter.Kind.STUDENTS;
+            case 2 -> kind = BulkImporter.Kind.MARKS;
+            case 3 -> kind = BulkImporter.Kind.ATTENDANCE;
+            default -> { System.out.println("Invalid option."); return; }
+        }
+        Path file = Path.of(readLine("File path (.csv or .tsv): "));
+        if (!Files.isRegularFile(file)) { System.out.println("File not found."); return; }
+
+        ImportResult result = new BulkImporter(sqlite).importFile(file, kind);
+        System.out.printf("Read %d rows, imported %d, rejected %d in %.2fs (%.0f rows/s)%n",
+                result.getRowsRead(), result.getImported(), result.getErrorCount(),
+                result.getElapsedSeconds(), result.getRowsPerSecond());
+        result.getErrors().stream().limit(20).forEach(e -> System.out.println("  " + e));
+        if (result.getErrorCount() > 20) System.out.println("  ... " + (result.getErrorCount() - 20) + " more");
+    }
+
+    private static void exportResultCardsFlow() throws SQLException, IOException {
+        System.out.println("\n[Export Result Cards]");
+        Path file = Path.of(readLine("Output file: "));
+        long start = System.nanoTime();
+        long count = manager.exportResultCards(file, Runtime.getRuntime().availableProcessors());
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Wrote %d result cards to %s in %.2fs%n", count, file, secs);
     }
 
     // --- IO Helpers ---
@@ -232,6 +474,10 @@ public class Main {
         return scanner.nextLine();
     }
 
+    private static boolean nextPage() {
+        return !readLine("-- Enter for more, q to stop -- ").equalsIgnoreCase("q");
+    }
+
     private static int readInt(String prompt) {
         while (true) {
             System.out.print(prompt);
@@ -1,34 +1,121 @@
-import java.util.LinkedHashMap;
-import java.util.Map;
+package src;
+
+import java.util.*;
+import java.util.function.IntFunction;
 
 /**
  * Represents computed performance details for a student.
- * Marks are provided as a map subject -> marks (0..100). Totals are computed.
+ * Marks (0..100) are kept in parallel subject-id / mark arrays ordered by subject id, so filling one
+ * allocates nothing once the arrays have grown to the student's subject count. Bulk loops reuse a
+ * single instance through reset(); getMarks() is a read-only subject name -> mark view over the arrays.
  */
 public class Performance {
-    private final Map<String, Double> marksBySubject = new LinkedHashMap<>();
+    private final IntFunction<String> subjectNames;
+    private int[] subjectIds;
+    private double[] marks;
+    private int count;
     private double total;
-    private double percentage;
-    private String grade;
 
-    public void putMark(String subject, double marks) {
-        marksBySubject.put(subject, marks);
-        recalc();
+    /** subjectNames resolves ids for getMarks() and toString(), e.g. StudentRepository::getSubjectName. */
+    public Performance(IntFunction<String> subjectNames) {
+        this.subjectNames = subjectNames;
+        this.subjectIds = new int[8];
+        this.marks = new double[8];
+    }
+
+    /** Empties this instance so it can be filled for the next student. */
+    public Performance reset() {
+        count = 0;
+        total = 0.0;
+        return this;
+    }
+
+    public void putMark(int subjectId, double mark) {
+        int i = Arrays.binarySearch(subjectIds, 0, count, subjectId);
+        if (i >= 0) {
+            total += mark - marks[i];
+            marks[i] = mark;
+            return;
+        }
+        i = -i - 1;
+        if (count == subjectIds.length) {
+            subjectIds = Arrays.copyOf(subjectIds, count * 2);
+            marks = Arrays.copyOf(marks, count * 2);
+        }
+        System.arraycopy(subjectIds, i, subjectIds, i + 1, count - i);
+        System.arraycopy(marks, i, marks, i + 1, count - i);
+        subjectIds[i] = subjectId;
+        marks[i] = mark;
+        count++;
+        total += mark;
+    }
+
+    /** Replaces the contents with n marks from already id-sorted arrays (an AnalyticsSnapshot row). */
+    void set(int[] ids, double[] values, int from, int n, double sum) {
+        if (subjectIds.length < n) {
+            subjectIds = new int[Math.max(n, subjectIds.length * 2)];
+            marks = new double[subjectIds.length];
+        }
+        System.arraycopy(ids, from, subjectIds, 0, n);
+        System.arraycopy(values, from, marks, 0, n);
+        count = n;
+        total = sum;
     }
 
-    public Map<String, Double> getMarks() { return marksBySubject; }
+    // --- Accessors ---
+    public int getSubjectCount() { return count; }
+    public int getSubjectId(int i) { return subjectIds[i]; }
+    public double getMark(int i) { return marks[i]; }
     public double getTotal() { return total; }
-    public double getPercentage() { return percentage; }
-    public String getGrade() { return grade; }
-
-    private void recalc() {
-        total = marksBySubject.values().stream().mapToDouble(Double::doubleValue).sum();
-        int n = marksBySubject.size();
-        percentage = (n == 0) ? 0.0 : total / n;
-        grade = calculateGrade(percentage);
+    public double getPercentage() { return count == 0 ? 0.0 : total / count; }
+    public String getGrade() { return calculateGrade(getPercentage()); }
+
+    /**
+     * Subject name -> mark, ordered by subject name; reads through to this instance until it is reset.
+     * A subject the name lookup does not know yet (created in a transaction that is still open, or by
+     * another process) is listed as "#id".
+     */
+    public Map<String, Double> getMarks() {
+        return new AbstractMap<>() {
+            @Override
+            public int size() { return count; }
+
+            @Override
+            public Set<Entry<String, Double>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public int size() { return count; }
+
+                    @Override
+                    public Iterator<Entry<String, Double>> iterator() {
+                        String[] names = new String[count];
+                        Integer[] order = new Integer[count];
+                        for (int i = 0; i < count; i++) {
+                            String name = subjectNames.apply(subjectIds[i]);
+                            names[i] = name != null ? name : "#" + subjectIds[i];
+                            order[i] = i;
+                        }
+                        Arrays.sort(order, Comparator.comparing(i -> names[i]));
+                        return new Iterator<>() {
+                            int next;
+
+                            @Override
+                            public boolean hasNext() { return next < order.length; }
+
+                            @Override
+                            public Entry<String, Double> next() {
+                                if (next >= order.length) throw new NoSuchElementException();
+                                int i = order[next++];
+                                return new SimpleImmutableEntry<>(names[i], marks[i]);
+                            }
+                        };
+                    }
+                };
+            }
+        };
     }
 
-    private String calculateGrade(double pct) {
+    static String calculateGrade(double pct) {
         if (pct >= 90) return "A+";
         if (pct >= 80) return "A";
         if (pct >= 70) return "B+";
@@ -40,6 +127,6 @@ public class Performance {
     @Override
     public String toString() {
         return String.format("Performance{Total=%.2f, Percentage=%.2f, Grade=%s, Marks=%s}",
-                total, percentage, grade, marksBySubject);
+                total, getPercentage(), getGrade(), getMarks());
     }
 }
@@ -0,0 +1,39 @@
+package src;
+
+/**
+ * A student together with the figures used to rank them.
+ * Produced in a single aggregated query by DatabaseHelper so callers never re-query per row.
+ */
+public class RankedStudent {
+    private final Student student;
+    private final double percentage;
+    private final String grade;
+    private final int present;
+    private final int total;
+
+    public RankedStudent(Student student, double percentage, String grade, int present, int total) {
+        this.student = student;
+        this.percentage = percentage;
+        this.grade = grade;
+        this.present = present;
+        this.total = total;
+    }
+
+    public Student getStudent() { return student; }
+    public int getId() { return student.getId(); }
+    public String getName() { return student.getName(); }
+    public double getPercentage() { return percentage; }
+    public String getGrade() { return grade; }
+    public int getPresent() { return present; }
+    public int getTotal() { return total; }
+
+    public double getAttendancePercentage() {
+        return total == 0 ? 0.0 : (present * 100.0) / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RankedStudent[ID=%d, Name=%s, Percentage=%.2f, Grade=%s, Attendance=%.2f]",
+                getId(), getName(), percentage, grade, getAttendancePercentage());
+    }
+}
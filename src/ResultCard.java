@@ -0,0 +1,103 @@
+package src;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * One student's result card: identity, marks (sorted by subject name) and attendance.
+ * appendTo() renders the same text as the old String.format version without going through
+ * Formatter, so a whole cohort can be rendered into one reused StringBuilder.
+ */
+public class ResultCard {
+    private final Student student;
+    private final String[] subjects;
+    private final double[] marks;
+    private final int present;
+    private final int total;
+
+    /** subjects[i] scored marks[i]; both arrays must already be in subject-name order. */
+    public ResultCard(Student student, String[] subjects, double[] marks, int present, int total) {
+        this.student = student;
+        this.subjects = subjects;
+        this.marks = marks;
+        this.present = present;
+        this.total = total;
+    }
+
+    public Student getStudent() { return student; }
+    public int getSubjectCount() { return subjects.length; }
+    public int getPresent() { return present; }
+    public int getTotal() { return total; }
+
+    public double getMarksTotal() {
+        double sum = 0.0;
+        for (double m : marks) sum += m;
+        return sum;
+    }
+
+    public double getPercentage() {
+        return marks.length == 0 ? 0.0 : getMarksTotal() / marks.length;
+    }
+
+    public double getAttendancePercentage() {
+        return total == 0 ? 0.0 : (present * 100.0) / total;
+    }
+
+    public void appendTo(StringBuilder sb) {
+        sb.append("\n===== Result Card =====\n");
+        sb.append("Student[ID=").append(student.getId())
+                .append(", Name=").append(student.getName())
+                .append(", Age=").append(student.getAge())
+                .append(", Course=").append(student.getCourse())
+                .append(", Roll=").append(student.getRoll()).append("]\n");
+        sb.append("Subjects & Marks:\n");
+        if (subjects.length == 0) {
+            sb.append("  No marks recorded.\n");
+        } else {
+            for (int i = 0; i < subjects.length; i++) {
+                sb.append("  - ").append(subjects[i]).append(": ");
+                appendFixed2(sb, marks[i]);
+                sb.append('\n');
+            }
+        }
+        double pct = getPercentage();
+        sb.append("Total: ");
+        appendFixed2(sb, getMarksTotal());
+        sb.append(" | Percentage: ");
+        appendFixed2(sb, pct);
+        // No marks grades as F (0%), like everywhere else; the old String.format card printed "Grade: null" here.
+        sb.append("% | Grade: ").append(Performance.calculateGrade(pct)).append('\n');
+        double attPct = getAttendancePercentage();
+        sb.append("Attendance: ").append(present).append('/').append(total).append(" (");
+        appendFixed2(sb, attPct);
+        sb.append("%)\n");
+        if (attPct < 75.0) sb.append("Warning: Attendance below 75%.\n");
+        sb.append("=======================\n");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(256);
+        appendTo(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends v the way "%.2f" prints it. Formatter rounds the shortest decimal form half-up,
+     * so values sitting on a .xx5 boundary (and negatives or huge values) take the exact path.
+     */
+    static void appendFixed2(StringBuilder sb, double v) {
+        double scaled = v * 100;
+        if (v < 0 || scaled >= 1e15 || Double.isNaN(v)
+                || Math.abs(scaled - Math.floor(scaled) - 0.5) < 1e-6) {
+            if (Double.isNaN(v) || Double.isInfinite(v)) sb.append(String.format("%.2f", v));
+            else sb.append(new BigDecimal(Double.toString(v)).setScale(2, RoundingMode.HALF_UP).toPlainString());
+            return;
+        }
+        long cents = Math.round(scaled);
+        long frac = cents % 100;
+        sb.append(cents / 100).append('.');
+        if (frac < 10) sb.append('0');
+        sb.append(frac);
+    }
+}
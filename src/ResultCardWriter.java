@@ -0,0 +1,134 @@
+package src;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes result cards for the whole cohort, streaming from StudentRepository.forEachResultCard.
+ * With one thread, cards are rendered straight into a reused buffer. With more, the cursor thread
+ * hands out chunks of cards to a formatting pool and writes the finished chunks back in order,
+ * keeping at most a few chunks per thread in flight.
+ */
+public class ResultCardWriter {
+    private static final int CHUNK_SIZE = 512;
+    private static final int FLUSH_AT = 32 * 1024;
+    private static final int WRITER_BUFFER = 64 * 1024;
+
+    private final StudentRepository db;
+    private final int threads;
+
+    public ResultCardWriter(StudentRepository db) {
+        this(db, 1);
+    }
+
+    public ResultCardWriter(StudentRepository db, int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("Thread count must be positive.");
+        this.db = db;
+        this.threads = threads;
+    }
+
+    /** Writes every card to a UTF-8 file, replacing it. Returns the number of cards written. */
+    public long writeAll(Path file) throws SQLException, IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), WRITER_BUFFER)) {
+            return writeAll(out);
+        }
+    }
+
+    /** Writes every card to out (which is flushed, not closed). Returns the number of cards written. */
+    public long writeAll(Writer out) throws SQLException, IOException {
+        try {
+            long count = threads == 1 ? writeSequential(out) : writeParallel(out);
+            out.flush();
+            return count;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private long writeSequential(Writer out) throws SQLException {
+        StringBuilder sb = new StringBuilder(FLUSH_AT + 4096);
+        char[] buf = new char[FLUSH_AT + 4096];
+        long count = db.forEachResultCard(card -> {
+            card.appendTo(sb);
+            if (sb.length() >= FLUSH_AT) drain(sb, buf, out);
+        });
+        drain(sb, buf, out);
+        return count;
+    }
+
+    private long writeParallel(Writer out) throws SQLException, IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "result-card-formatter");
+            t.setDaemon(true);
+            return t;
+        });
+        ArrayDeque<Future<String>> inFlight = new ArrayDeque<>();
+        int window = threads * 4;
+        try {
+            List<List<ResultCard>> chunk = new ArrayList<>(1);
+            chunk.add(new ArrayList<>(CHUNK_SIZE));
+            long count = db.forEachResultCard(card -> {
+                List<ResultCard> cards = chunk.get(0);
+                cards.add(card);
+                if (cards.size() == CHUNK_SIZE) {
+                    inFlight.add(pool.submit(() -> format(cards)));
+                    chunk.set(0, new ArrayList<>(CHUNK_SIZE));
+                    // Block on the oldest chunk once the window is full; this also keeps output in order.
+                    if (inFlight.size() >= window) write(inFlight.poll(), out);
+                }
+            });
+            List<ResultCard> rest = chunk.get(0);
+            if (!rest.isEmpty()) inFlight.add(pool.submit(() -> format(rest)));
+            while (!inFlight.isEmpty()) write(inFlight.poll(), out);
+            return count;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static String format(List<ResultCard> cards) {
+        StringBuilder sb = new StringBuilder(cards.size() * 320);
+        for (ResultCard card : cards) card.appendTo(sb);
+        return sb.toString();
+    }
+
+    private static void write(Future<String> chunk, Writer out) {
+        try {
+            out.write(chunk.get());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Formatting result cards failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing result cards.", e);
+        }
+    }
+
+    private static void drain(StringBuilder sb, char[] buf, Writer out) {
+        int len = sb.length();
+        if (len == 0) return;
+        if (buf.length < len) buf = new char[len];
+        sb.getChars(0, len, buf, 0);
+        try {
+            out.write(buf, 0, len);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        sb.setLength(0);
+    }
+}
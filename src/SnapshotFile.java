@@ -0,0 +1,300 @@
+package src;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary copy of an AnalyticsSnapshot (students, marks by subject id, attendance) that a new process
+ * maps with FileChannel.map instead of querying every row. A file belongs to the database it was
+ * written from: it records that database's id and change log position, so a reader can tell whether
+ * it is current and which students changed since (see AnalyticsSnapshot.load(db, file)). Summary and top-k
+ * run straight off the mapped columns without copying them onto the heap.
+ *
+ * Layout, little-endian, sections 8-byte aligned:
+ * <pre>
+ *   header (64 bytes): magic "SSNP", format version, change seq, written-at millis, students n,
+ *                      marks m, string heap bytes, database id, CRC32 of every other byte of the file
+ *   int ids[n], ages[n], present[n], total[n], markOffsets[n + 1]
+ *   double markTotals[n]
+ *   int subjectIds[m]; double marks[m]         student i's marks are [markOffsets[i], markOffsets[i + 1])
+ *   int stringOffsets[3n + 1]; byte heap[]     UTF-8 name, course, roll of each student in turn
+ * </pre>
+ */
+public final class SnapshotFile {
+    private static final int MAGIC = 0x504E5353;   // "SSNP" read little-endian
+    private static final int FORMAT_VERSION = 2;   // 2: database id at offset 40
+    private static final int HEADER_BYTES = 64;
+    private static final int CRC_AT = 56;
+
+    private final Path path;
+    private final long changeSeq;
+    private final long writtenAt;
+    private final long databaseId;
+    private final int size;
+    private final IntBuffer ids, ages, present, total, markOffsets, subjectIds, stringOffsets;
+    private final DoubleBuffer markTotals, marks;
+    private final ByteBuffer heap;
+
+    private SnapshotFile(Path path, ByteBuffer buf) throws IOException {
+        this.path = path;
+        if (buf.capacity() < HEADER_BYTES || buf.getInt(0) != MAGIC) throw corrupt("not a snapshot file");
+        if (buf.getInt(4) != FORMAT_VERSION) throw corrupt("unsupported format version " + buf.getInt(4));
+        this.changeSeq = buf.getLong(8);
+        this.writtenAt = buf.getLong(16);
+        this.size = buf.getInt(24);
+        int markCount = buf.getInt(28);
+        int heapBytes = buf.getInt(32);
+        this.databaseId = buf.getLong(40);
+        Layout layout = new Layout(size, markCount, heapBytes);
+        if (size < 0 || markCount < 0 || heapBytes < 0 || layout.end != buf.capacity()) {
+            throw corrupt("header does not match the file size");
+        }
+        if (buf.getInt(CRC_AT) != (int) checksum(buf)) throw corrupt("checksum mismatch");
+
+        ids = ints(buf, layout.ids, size);
+        ages = ints(buf, layout.ages, size);
+        present = ints(buf, layout.present, size);
+        total = ints(buf, layout.total, size);
+        markOffsets = ints(buf, layout.markOffsets, size + 1);
+        markTotals = buf.slice(layout.markTotals, size * 8).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        subjectIds = ints(buf, layout.subjectIds, markCount);
+        marks = buf.slice(layout.marks, markCount * 8).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        stringOffsets = ints(buf, layout.stringOffsets, 3 * size + 1);
+        heap = buf.slice(layout.heap, heapBytes);
+    }
+
+    // --- Writing ---
+    /** Writes db's current state; returns the file size in bytes. */
+    public static long write(StudentRepository db, Path file) throws SQLException, IOException {
+        return write(AnalyticsSnapshot.load(db), file);
+    }
+
+    /**
+     * Writes snap, stamped with its database id and change seq. The file is assembled next to the
+     * target and moved into place, so readers never see half of it.
+     */
+    public static long write(AnalyticsSnapshot snap, Path file) throws IOException {
+        int n = snap.size();
+        Performance p = snap.newPerformance();
+        int markCount = 0;
+        for (int i = 0; i < n; i++) markCount += snap.getSubjectCount(i);
+
+        byte[][] strings = new byte[3 * n][];
+        long heapBytes = 0;
+        for (int i = 0; i < n; i++) {
+            strings[3 * i] = snap.getName(i).getBytes(StandardCharsets.UTF_8);
+            strings[3 * i + 1] = snap.getCourse(i).getBytes(StandardCharsets.UTF_8);
+            strings[3 * i + 2] = snap.getRoll(i).getBytes(StandardCharsets.UTF_8);
+            heapBytes += strings[3 * i].length + strings[3 * i + 1].length + strings[3 * i + 2].length;
+        }
+        Layout layout = new Layout(n, markCount, (int) Math.min(heapBytes, Integer.MAX_VALUE));
+        if (layout.end > Integer.MAX_VALUE) throw new IOException("Snapshot too large to map (" + layout.end + " bytes).");
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = ch.map(FileChannel.MapMode.READ_WRITE, 0, layout.end);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(0, MAGIC).putInt(4, FORMAT_VERSION).putLong(8, snap.getChangeSeq()).putLong(16, System.currentTimeMillis())
+                    .putInt(24, n).putInt(28, markCount).putInt(32, (int) heapBytes).putLong(40, snap.getDatabaseId());
+
+            out.position(layout.ids);
+            for (int i = 0; i < n; i++) out.putInt(snap.getId(i));
+            out.position(layout.ages);
+            for (int i = 0; i < n; i++) out.putInt(snap.getAge(i));
+            out.position(layout.present);
+            for (int i = 0; i < n; i++) out.putInt(snap.getPresent(i));
+            out.position(layout.total);
+            for (int i = 0; i < n; i++) out.putInt(snap.getTotal(i));
+            out.position(layout.markTotals);
+            for (int i = 0; i < n; i++) out.putDouble(snap.getMarksTotal(i));
+
+            int k = 0;
+            out.putInt(layout.markOffsets, 0);
+            for (int i = 0; i < n; i++) {
+                snap.getPerformance(i, p);
+                for (int j = 0; j < p.getSubjectCount(); j++, k++) {
+                    out.putInt(layout.subjectIds + 4 * k, p.getSubjectId(j));
+                    out.putDouble(layout.marks + 8 * k, p.getMark(j));
+                }
+                out.putInt(layout.markOffsets + 4 * (i + 1), k);
+            }
+
+            int at = 0;
+            out.position(layout.stringOffsets);
+            for (byte[] s : strings) {
+                out.putInt(at);
+                at += s.length;
+            }
+            out.putInt(at);
+            out.position(layout.heap);
+            for (byte[] s : strings) out.put(s);
+
+            out.putInt(CRC_AT, (int) checksum(out));
+            out.force();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return layout.end;
+    }
+
+    // --- Reading ---
+    /** Maps and verifies the file; IOException if it is missing, truncated or corrupt. */
+    public static SnapshotFile open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = ch.size();
+            if (length > Integer.MAX_VALUE) throw new IOException(file + " is too large to be a snapshot.");
+            // The mapping stays valid after the channel is closed.
+            return new SnapshotFile(file, ch.map(FileChannel.MapMode.READ_ONLY, 0, length).order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    public long getChangeSeq() { return changeSeq; }
+    public long getWrittenAt() { return writtenAt; }
+    public long getDatabaseId() { return databaseId; }
+    public int size() { return size; }
+
+    /** True when nothing was written to db since this file was saved from it. */
+    public boolean isCurrent(StudentRepository db) throws SQLException {
+        return db.getDatabaseId() == databaseId && db.getLastChangeSeq() == changeSeq;
+    }
+
+    public int getId(int index) { return ids.get(index); }
+    public int getSubjectCount(int index) { return markOffsets.get(index + 1) - markOffsets.get(index); }
+
+    public double getPercentage(int index) {
+        int n = getSubjectCount(index);
+        return n == 0 ? 0.0 : markTotals.get(index) / n;
+    }
+
+    public RankedStudent get(int index) {
+        Student s = new Student(ids.get(index), string(3 * index), ages.get(index), string(3 * index + 1), string(3 * index + 2));
+        double pct = getPercentage(index);
+        return new RankedStudent(s, pct, Performance.calculateGrade(pct), present.get(index), total.get(index));
+    }
+
+    /** Feeds every row to sink in id order, the way StudentRepository.readSnapshotRows does. */
+    public void readRows(AnalyticsSnapshot.RowSink sink) {
+        for (int i = 0; i < size; i++) {
+            int from = markOffsets.get(i), to = markOffsets.get(i + 1);
+            sink.student(ids.get(i), string(3 * i), ages.get(i), string(3 * i + 1), string(3 * i + 2),
+                    markTotals.get(i), to - from, getPercentage(i), present.get(i), total.get(i));
+            for (int k = from; k < to; k++) sink.mark(subjectIds.get(k), marks.get(k));
+        }
+    }
+
+    // --- Aggregates, computed on the mapped columns ---
+    /** Same figures as AnalyticsSnapshot.getSummaryStats. */
+    public SummaryStats getSummaryStats() {
+        if (size == 0) return new SummaryStats(0, 0.0, 0, null, 0.0);
+        double pctSum = 0.0, attSum = 0.0, bestPct = -1;
+        long pass = 0;
+        int best = 0;
+        for (int i = 0; i < size; i++) {
+            double pct = getPercentage(i);
+            pctSum += pct;
+            if (pct >= 50.0) pass++;
+            if (pct > bestPct) {            // ids ascend, so ties keep the lowest id
+                bestPct = pct;
+                best = i;
+            }
+            attSum += attendancePct(i);
+        }
+        return new SummaryStats(size, pctSum / size, pass, get(best), attSum / size);
+    }
+
+    /** The k best students in AnalyticsSnapshot.getRankings() order. */
+    public List<RankedStudent> getTopStudents(int k) {
+        List<RankedStudent> list = new ArrayList<>();
+        if (k <= 0 || size == 0) return list;
+        AnalyticsSnapshot.TopK top = new AnalyticsSnapshot.TopK(Math.min(k, size), this::compareRank);
+        for (int i = 0; i < size; i++) top.offer(i);
+        for (int i : top.sorted()) list.add(get(i));
+        return list;
+    }
+
+    private int compareRank(int a, int b) {
+        int c = Double.compare(getPercentage(b), getPercentage(a));
+        if (c == 0) c = Double.compare(attendancePct(b), attendancePct(a));
+        return c != 0 ? c : Integer.compare(ids.get(a), ids.get(b));
+    }
+
+    private double attendancePct(int i) {
+        int t = total.get(i);
+        return t == 0 ? 0.0 : present.get(i) * 100.0 / t;
+    }
+
+    private String string(int n) {
+        int from = stringOffsets.get(n), to = stringOffsets.get(n + 1);
+        byte[] bytes = new byte[to - from];
+        heap.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // --- Layout ---
+    /** Byte offset of each section for the given counts; end is the file size. */
+    private static final class Layout {
+        final int ids, ages, present, total, markOffsets, markTotals, subjectIds, marks, stringOffsets, heap;
+        final long end;
+
+        Layout(int n, int m, int heapBytes) {
+            long at = HEADER_BYTES;
+            ids = (int) at;
+            at = align(at + 4L * n);
+            ages = (int) at;
+            at = align(at + 4L * n);
+            present = (int) at;
+            at = align(at + 4L * n);
+            total = (int) at;
+            at = align(at + 4L * n);
+            markOffsets = (int) at;
+            at = align(at + 4L * (n + 1));
+            markTotals = (int) at;
+            at = align(at + 8L * n);
+            subjectIds = (int) at;
+            at = align(at + 4L * m);
+            marks = (int) at;
+            at = align(at + 8L * m);
+            stringOffsets = (int) at;
+            at = align(at + 4L * (3L * n + 1));
+            heap = (int) at;
+            end = at + heapBytes;
+        }
+
+        private static long align(long at) { return (at + 7) & ~7L; }
+    }
+
+    private static IntBuffer ints(ByteBuffer buf, int at, int count) {
+        return buf.slice(at, count * 4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    // CRC32 of the whole buffer except the 4-byte checksum field itself.
+    private static long checksum(ByteBuffer buf) {
+        CRC32 crc = new CRC32();
+        crc.update(buf.slice(0, CRC_AT));
+        crc.update(buf.slice(CRC_AT + 4, buf.capacity() - CRC_AT - 4));
+        return crc.getValue();
+    }
+
+    private IOException corrupt(String why) {
+        return new IOException("Snapshot " + path + " is unusable: " + why + ".");
+    }
+
+    @Override
+    public String toString() {
+        return "SnapshotFile{Path=" + path + ", Students=" + size + ", ChangeSeq=" + changeSeq + ", WrittenAt=" + writtenAt + "}";
+    }
+}
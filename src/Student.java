@@ -1,3 +1,5 @@
+package src;
+
 /**
  * Encapsulates student identity and metadata.
  * Persistence handled via DatabaseHelper; this class represents the domain model.
@@ -0,0 +1,106 @@
+package src;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of students keyed by id, with a roll -> id index.
+ * Students are copied on the way in and out, so callers mutating a returned Student
+ * never change the cached one.
+ *
+ * Read-through callers take getGeneration() before reading the database and fill with
+ * putIfUnchanged(), which skips the put if a writer has put or invalidated anything since;
+ * otherwise a read racing an update or delete could put the old row back after the write.
+ */
+public class StudentCache {
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private final int capacity;
+    private final Map<String, Integer> idByRoll = new HashMap<>();
+    private final LinkedHashMap<Integer, Student> byId;
+    private long hits;
+    private long misses;
+    private long generation;
+
+    public StudentCache(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Cache capacity must be positive.");
+        this.capacity = capacity;
+        this.byId = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Student> eldest) {
+                if (size() <= StudentCache.this.capacity) return false;
+                idByRoll.remove(eldest.getValue().getRoll());
+                return true;
+            }
+        };
+    }
+
+    public synchronized Student getById(int id) {
+        Student s = byId.get(id);
+        if (s == null) { misses++; return null; }
+        hits++;
+        return copy(s);
+    }
+
+    public synchronized Student getByRoll(String roll) {
+        Integer id = idByRoll.get(roll);
+        Student s = id == null ? null : byId.get(id);
+        if (s == null) { misses++; return null; }
+        hits++;
+        return copy(s);
+    }
+
+    /** Written state: replaces whatever is cached for s's id. */
+    public synchronized void put(Student s) {
+        generation++;
+        store(s);
+    }
+
+    /** Read-through fill; false (nothing cached) if the cache was written after generation was taken. */
+    public synchronized boolean putIfUnchanged(Student s, long generation) {
+        if (generation != this.generation) return false;
+        store(s);
+        return true;
+    }
+
+    public synchronized long getGeneration() { return generation; }
+
+    private void store(Student s) {
+        Student previous = byId.put(s.getId(), copy(s));
+        if (previous != null && !previous.getRoll().equals(s.getRoll())) idByRoll.remove(previous.getRoll());
+        idByRoll.put(s.getRoll(), s.getId());
+    }
+
+    public synchronized void invalidate(int id) {
+        generation++;
+        Student previous = byId.remove(id);
+        if (previous != null) idByRoll.remove(previous.getRoll());
+    }
+
+    public synchronized void clear() {
+        generation++;
+        byId.clear();
+        idByRoll.clear();
+    }
+
+    public int getCapacity() { return capacity; }
+    public synchronized int size() { return byId.size(); }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (hits * 100.0) / lookups;
+    }
+
+    private static Student copy(Student s) {
+        return new Student(s.getId(), s.getName(), s.getAge(), s.getCourse(), s.getRoll());
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("StudentCache{Size=%d/%d, Hits=%d, Misses=%d, HitRate=%.2f%%}",
+                byId.size(), capacity, hits, misses, getHitRate());
+    }
+}
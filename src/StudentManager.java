@@ -1,28 +1,74 @@
+package src;
+
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
- * Orchestrates business logic, validation, and calls to DatabaseHelper.
+ * Orchestrates business logic, validation, and calls to the storage engine (a StudentRepository).
+ * Student lookups are read-through a StudentCache, and attendance updates are write-behind
+ * (see AttendanceBuffer); call close() to flush them on shutdown.
  */
-public class StudentManager {
-    private final DatabaseHelper db;
+public class StudentManager implements AutoCloseable {
+    private final StudentRepository db;
+    private final AttendanceBuffer attendance;
+    private final StudentCache cache;
+    private AnalyticsSnapshot analytics;
+
+    public StudentManager(StudentRepository db) {
+        this(db, new AttendanceBuffer(db), new StudentCache(StudentCache.DEFAULT_CAPACITY));
+    }
 
-    public StudentManager(DatabaseHelper db) {
+    public StudentManager(StudentRepository db, AttendanceBuffer attendance, StudentCache cache) {
         this.db = db;
+        this.attendance = attendance;
+        this.cache = cache;
+    }
+
+    public StudentCache getCache() { return cache; }
+    public AttendanceBuffer getAttendanceBuffer() { return attendance; }
+
+    @Override
+    public void close() throws SQLException {
+        attendance.close();
+    }
+
+    // --- Transactions ---
+    /**
+     * Runs a caller-defined batch of manager operations as one database transaction (see
+     * StudentRepository.inTransaction); cache updates are applied only if it commits.
+     */
+    public <T> T inTransaction(StudentRepository.Work<T> work) throws SQLException {
+        return db.inTransaction(work);
+    }
+
+    public void inTransaction(StudentRepository.VoidWork work) throws SQLException {
+        db.inTransaction(work);
     }
 
     // --- CRUD ---
+    /** The roll check, student row and attendance row commit together. */
     public Student addStudent(String name, int age, String course, String roll) throws SQLException {
         validateBasicInfo(name, age, course, roll);
-        if (db.getStudentByRoll(roll) != null) throw new IllegalArgumentException("Roll already exists.");
         Student s = new Student(name.trim(), age, course.trim(), roll.trim());
-        db.insertStudent(s);
+        db.inTransaction(() -> {
+            if (findByRoll(s.getRoll()) != null) throw new IllegalArgumentException("Roll already exists.");
+            db.insertStudent(s);
+            db.afterCommit(() -> cache.put(s));
+        });
         return s;
     }
 
     public boolean updateStudent(int id, String name, Integer age, String course, String roll) throws SQLException {
-        Student s = db.getStudentById(id);
+        return db.inTransaction(() -> applyUpdate(id, name, age, course, roll));
+    }
+
+    private boolean applyUpdate(int id, String name, Integer age, String course, String roll) throws SQLException {
+        Student s = findById(id);
         if (s == null) return false;
 
         if (name != null && !name.isBlank()) s.setName(name.trim());
@@ -30,111 +76,267 @@ public class StudentManager {
         if (course != null && !course.isBlank()) s.setCourse(course.trim());
         if (roll != null && !roll.isBlank()) {
             roll = roll.trim();
-            Student other = db.getStudentByRoll(roll);
+            Student other = findByRoll(roll);
             if (other != null && other.getId() != id) {
                 throw new IllegalArgumentException("Another student already has this roll.");
             }
             s.setRoll(roll);
         }
-        return db.updateStudent(s);
+        boolean ok = db.updateStudent(s);
+        if (ok) db.afterCommit(() -> cache.put(s));
+        else cache.invalidate(id);
+        return ok;
     }
 
     public boolean deleteStudent(int id) throws SQLException {
-        return db.deleteStudent(id);
+        boolean ok = db.deleteStudent(id);
+        // Marks and attendance rows go with the student (ON DELETE CASCADE); drop what we hold for them too.
+        cache.invalidate(id);
+        db.afterCommit(() -> {
+            cache.invalidate(id);
+            attendance.discard(id);
+        });
+        return ok;
+    }
+
+    public Student findById(int id) throws SQLException {
+        Student s = cache.getById(id);
+        if (s == null) {
+            long generation = cache.getGeneration();
+            s = db.getStudentById(id);
+            if (s != null) cacheAfterCommit(s, generation);
+        }
+        return s;
+    }
+
+    public Student findByRoll(String roll) throws SQLException {
+        Student s = cache.getByRoll(roll);
+        if (s == null) {
+            long generation = cache.getGeneration();
+            s = db.getStudentByRoll(roll);
+            if (s != null) cacheAfterCommit(s, generation);
+        }
+        return s;
+    }
+
+    // Inside a transaction a read can see the transaction's own uncommitted rows; cache them only once they are real,
+    // and not at all if a write reached the cache after the read started (see StudentCache).
+    private void cacheAfterCommit(Student s, long generation) {
+        Student copy = new Student(s.getId(), s.getName(), s.getAge(), s.getCourse(), s.getRoll());
+        db.afterCommit(() -> cache.putIfUnchanged(copy, generation));
     }
 
-    public Student findById(int id) throws SQLException { return db.getStudentById(id); }
-    public Student findByRoll(String roll) throws SQLException { return db.getStudentByRoll(roll); }
     public List<Student> searchByName(String q) throws SQLException { return db.searchStudentsByName(q); }
+    public List<Student> searchByName(String q, int limit) throws SQLException { return db.searchStudentsByName(q, limit); }
     public List<Student> getAllStudents() throws SQLException { return db.getAllStudents(); }
 
+    /** Next page of students after lastId (0 for the first page); course may be null for everyone. */
+    public List<Student> listStudentsAfter(String course, int lastId, int pageSize) throws SQLException {
+        return db.listStudentsAfter(course, lastId, pageSize);
+    }
+
     // --- Subjects & Marks ---
     public List<String> listSubjects() throws SQLException { return db.listSubjects(); }
 
     public boolean addOrUpdateMark(int studentId, String subject, double marks) throws SQLException {
-        if (subject == null || subject.isBlank()) throw new IllegalArgumentException("Subject required.");
-        if (marks < 0 || marks > 100) throw new IllegalArgumentException("Marks must be 0..100.");
-        Student s = db.getStudentById(studentId);
+        validateMark(subject, marks);
+        Student s = findById(studentId);
         if (s == null) return false;
         db.upsertMark(studentId, subject.trim(), marks);
         return true;
     }
 
+    public boolean deleteMark(int studentId, String subject) throws SQLException {
+        if (subject == null || subject.isBlank()) throw new IllegalArgumentException("Subject required.");
+        return db.deleteMark(studentId, subject.trim());
+    }
+
     public Performance getPerformance(int studentId) throws SQLException {
-        Map<String, Double> map = db.getMarksForStudent(studentId);
-        Performance p = new Performance();
-        map.forEach(p::putMark);
-        return p;
+        return db.readMarks(studentId, new Performance(db::getSubjectName));
     }
 
     public String buildResultCard(int studentId) throws SQLException {
-        Student s = db.getStudentById(studentId);
+        Student s = findById(studentId);
         if (s == null) return "Student not found.";
-        Performance p = getPerformance(studentId);
-        int[] att = db.getAttendance(studentId);
-        double attPct = db.getAttendancePercentage(studentId);
-        StringBuilder sb = new StringBuilder();
-        sb.append("\n===== Result Card =====\n");
-        sb.append(s).append("\n");
-        sb.append("Subjects & Marks:\n");
-        if (p.getMarks().isEmpty()) {
-            sb.append("  No marks recorded.\n");
-        } else {
-            p.getMarks().forEach((sub, m) ->
-                    sb.append(String.format("  - %s: %.2f\n", sub, m)));
-        }
-        sb.append(String.format("Total: %.2f | Percentage: %.2f%% | Grade: %s\n",
-                p.getTotal(), p.getPercentage(), p.getGrade()));
-        sb.append(String.format("Attendance: %d/%d (%.2f%%)\n", att[0], att[1], attPct));
-        if (attPct < 75.0) sb.append("Warning: Attendance below 75%.\n");
-        sb.append("=======================\n");
-        return sb.toString();
+        Map<String, Double> marks = db.getMarksForStudent(studentId);
+        String[] subjects = marks.keySet().toArray(new String[0]);
+        double[] values = new double[subjects.length];
+        for (int i = 0; i < subjects.length; i++) values[i] = marks.get(subjects[i]);
+        int[] att = attendance.getAttendance(studentId);
+        return new ResultCard(s, subjects, values, att[0], att[1]).toString();
+    }
+
+    /**
+     * Writes the result card of every student to a file in one streamed pass.
+     * threads > 1 formats cards in parallel; the output order (by id) is the same either way.
+     */
+    public long exportResultCards(Path file, int threads) throws SQLException, IOException {
+        attendance.flush();
+        return new ResultCardWriter(db, threads).writeAll(file);
+    }
+
+    /** Streams a whole table to a .csv, .ndjson or .sscf file (format chosen by extension). */
+    public ExportResult exportData(DataExporter.Dataset dataset, Path file) throws SQLException, IOException {
+        attendance.flush();
+        return new DataExporter(db).export(dataset, file);
     }
 
     // --- Attendance ---
     public boolean updateAttendance(int studentId, int addPresent, int addTotal) throws SQLException {
-        if (addPresent < 0 || addTotal < 0) throw new IllegalArgumentException("Days cannot be negative.");
-        if (addPresent > addTotal) throw new IllegalArgumentException("Present cannot exceed total.");
-        Student s = db.getStudentById(studentId);
+        validateAttendance(addPresent, addTotal);
+        Student s = findById(studentId);
         if (s == null) return false;
-        db.addAttendance(studentId, addPresent, addTotal);
+        attendance.record(studentId, addPresent, addTotal);
         return true;
     }
 
+    public int[] getAttendance(int studentId) throws SQLException {
+        return attendance.getAttendance(studentId);
+    }
+
+    public double getAttendancePercentage(int studentId) throws SQLException {
+        int[] at = attendance.getAttendance(studentId);
+        return at[1] == 0 ? 0.0 : (at[0] * 100.0) / at[1];
+    }
+
+    /** Writes buffered attendance now, so database-side queries see it. */
+    public void flushAttendance() throws SQLException {
+        attendance.flush();
+    }
+
     // --- Ranking & Summary ---
-    public List<Student> getRankedStudents() throws SQLException { return db.getRankedStudents(); }
+    /**
+     * Current columnar snapshot for analytics. Pending attendance is flushed first, then the
+     * snapshot is brought up to date by re-reading only the students changed since the last call.
+     */
+    public synchronized AnalyticsSnapshot getAnalytics() throws SQLException {
+        attendance.flush();
+        analytics = analytics == null ? AnalyticsSnapshot.load(db) : analytics.refresh();
+        return analytics;
+    }
+
+    /**
+     * Seeds the analytics snapshot from a file written by saveSnapshot, re-reading only students
+     * changed since, instead of every row on first use. IOException if the file is missing or corrupt.
+     */
+    public synchronized AnalyticsSnapshot warmStart(Path file) throws SQLException, IOException {
+        attendance.flush();
+        analytics = AnalyticsSnapshot.load(db, SnapshotFile.open(file));
+        return analytics;
+    }
+
+    /** Writes the up-to-date analytics snapshot to file for a later warmStart; returns its size in bytes. */
+    public synchronized long saveSnapshot(Path file) throws SQLException, IOException {
+        attendance.flush();
+        return SnapshotFile.write(getAnalytics(), file);
+    }
+
+    public List<Student> getRankedStudents() throws SQLException {
+        List<Student> students = new ArrayList<>();
+        for (RankedStudent r : getRankings()) students.add(r.getStudent());
+        return students;
+    }
+
+    public List<RankedStudent> getRankings() throws SQLException {
+        return getAnalytics().getRankings();
+    }
+
+    public List<RankedStudent> getTopStudents(int k) throws SQLException {
+        return getAnalytics().getTopStudents(k);
+    }
+
+    public Map<String, Long> getGradeDistribution() throws SQLException {
+        return getAnalytics().getGradeDistribution();
+    }
+
+    public SummaryStats getSummaryStats(Consumer<RankedStudent> each) throws SQLException {
+        AnalyticsSnapshot snapshot = getAnalytics();
+        if (each != null) snapshot.forEach(each);
+        return snapshot.getSummaryStats();
+    }
+
+    /** Summary report rows after lastId, in id order, read from the analytics snapshot. */
+    public List<RankedStudent> getSummaryPage(int lastId, int pageSize) throws SQLException {
+        if (pageSize <= 0) throw new IllegalArgumentException("Page size must be positive.");
+        return getAnalytics().pageAfter(lastId, pageSize);
+    }
+
+    // --- Subject & Course Statistics ---
+    /** Per-subject mark statistics; pass a course to restrict them to its students, or null for everyone. */
+    public List<GroupStats> getSubjectStats(String course) throws SQLException { return db.getSubjectStats(course); }
+    public List<GroupStats> getCourseStats() throws SQLException { return db.getCourseStats(); }
+
+    // --- Terms ---
+    /** Archives the current marks as a closed term named name; everything else carries over. */
+    public Term closeTerm(String name) throws SQLException {
+        if (name == null || name.isBlank()) throw new IllegalArgumentException("Term name required.");
+        return db.closeTerm(name.trim());
+    }
+
+    public List<Term> listTerms() throws SQLException { return db.listTerms(); }
+
+    public Map<String, Double> getMarksForStudent(int studentId, int termId) throws SQLException {
+        return db.getMarksForStudent(studentId, termId);
+    }
+
+    public List<TermResult> getTermHistory(int studentId) throws SQLException { return db.getTermHistory(studentId); }
+
+    /** Per-course percentage change from one term to the next (StudentRepository.CURRENT_TERM for the open one). */
+    public List<TermDelta> getTermDeltas(int fromTermId, int toTermId) throws SQLException {
+        return db.getTermDeltas(fromTermId, toTermId);
+    }
+
+    // --- Change log ---
+    /** Logged changes after afterSeq, flushing buffered attendance first so it shows up too. */
+    public List<ChangeEvent> readChanges(long afterSeq, int limit) throws SQLException {
+        attendance.flush();
+        return db.readChanges(afterSeq, limit);
+    }
+
+    public long getLastChangeSeq() throws SQLException { return db.getLastChangeSeq(); }
+
+    /** A consumer positioned after offset; see ChangeFeed. Buffered attendance reaches it once flushed. */
+    public ChangeFeed openChangeFeed(long offset) { return new ChangeFeed(db, offset); }
 
     public String buildSummaryReport() throws SQLException {
-        int total = db.getAllStudents().size();
-        double classAvg = db.getClassAveragePercentage();
-        long pass = db.getPassCount();
-        long fail = total - pass;
-        Student highest = db.getHighestScorer();
-        double avgAtt = db.getAverageAttendancePercentage();
+        return buildSummaryReport(getSummaryStats(null));
+    }
 
+    public String buildSummaryReport(SummaryStats stats) {
+        RankedStudent highest = stats.getHighestScorer();
         StringBuilder sb = new StringBuilder();
         sb.append("\n===== Summary Report =====\n");
-        sb.append("Total Registered Students  : ").append(total).append("\n");
-        sb.append(String.format("Average Class Percentage   : %.2f%%\n", classAvg));
-        sb.append("Pass Count                 : ").append(pass).append("\n");
-        sb.append("Fail Count                 : ").append(fail).append("\n");
+        sb.append("Total Registered Students  : ").append(stats.getTotalStudents()).append("\n");
+        sb.append(String.format("Average Class Percentage   : %.2f%%\n", stats.getClassAverage()));
+        sb.append("Pass Count                 : ").append(stats.getPassCount()).append("\n");
+        sb.append("Fail Count                 : ").append(stats.getFailCount()).append("\n");
         if (highest != null) {
-            double pct = db.getPercentageForStudent(highest.getId());
             sb.append("Highest Scorer             : ")
                     .append(highest.getName()).append(" (ID ").append(highest.getId()).append(") - ")
-                    .append(String.format("%.2f%%\n", pct));
+                    .append(String.format("%.2f%%\n", highest.getPercentage()));
         } else {
             sb.append("Highest Scorer             : N/A\n");
         }
-        sb.append(String.format("Average Attendance         : %.2f%%\n", avgAtt));
+        sb.append(String.format("Average Attendance         : %.2f%%\n", stats.getAverageAttendance()));
         sb.append("============================\n");
         return sb.toString();
     }
 
-    private void validateBasicInfo(String name, int age, String course, String roll) {
+    // --- Validation (shared with BulkImporter) ---
+    static void validateBasicInfo(String name, int age, String course, String roll) {
         if (name == null || name.isBlank()) throw new IllegalArgumentException("Name required.");
         if (age <= 0) throw new IllegalArgumentException("Age must be positive.");
         if (course == null || course.isBlank()) throw new IllegalArgumentException("Course required.");
         if (roll == null || roll.isBlank()) throw new IllegalArgumentException("Roll required.");
     }
+
+    static void validateMark(String subject, double marks) {
+        if (subject == null || subject.isBlank()) throw new IllegalArgumentException("Subject required.");
+        if (!Double.isFinite(marks) || marks < 0 || marks > 100) throw new IllegalArgumentException("Marks must be 0..100.");
+    }
+
+    static void validateAttendance(int addPresent, int addTotal) {
+        if (addPresent < 0 || addTotal < 0) throw new IllegalArgumentException("Days cannot be negative.");
+        if (addPresent > addTotal) throw new IllegalArgumentException("Present cannot exceed total.");
+    }
 }
@@ -0,0 +1,177 @@
+package src;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Storage operations behind StudentManager. DatabaseHelper implements them on SQLite (a file, or
+ * in memory via DatabaseHelper.inMemory()); InMemoryStudentRepository keeps everything on the heap.
+ * Every engine must behave the same: ids are assigned in increasing order and never reused, rolls
+ * and subject names are unique, and changes become visible to other threads only once committed.
+ *
+ * Methods throw SQLException for storage failures and constraint violations (duplicate roll, mark
+ * for a missing student), whichever engine is in use.
+ */
+public interface StudentRepository extends AutoCloseable {
+    /** Term id of the open term, whose marks are the ones upsertMark writes. */
+    int CURRENT_TERM = 0;
+
+    /** A unit of work for inTransaction. */
+    @FunctionalInterface
+    interface Work<T> {
+        T run() throws SQLException;
+    }
+
+    @FunctionalInterface
+    interface VoidWork {
+        void run() throws SQLException;
+    }
+
+    // --- Transactions ---
+    /**
+     * Runs work as one transaction: all of it commits or none of it does. Calls made inside it on the
+     * same thread join it, as do nested inTransaction calls; a nested failure rolls back the whole unit.
+     */
+    <T> T inTransaction(Work<T> work) throws SQLException;
+
+    default void inTransaction(VoidWork work) throws SQLException {
+        inTransaction(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /** Runs action after the current transaction commits, or straight away when there is none. */
+    void afterCommit(Runnable action);
+
+    /** Runs action if the current transaction rolls back; does nothing outside a transaction. */
+    void onRollback(Runnable action);
+
+    // --- Change tracking ---
+    long getChangeVersion();
+
+    /** Sorted ids of students changed after the given version, or null if a full reload is needed. */
+    int[] getChangedStudentsSince(long version);
+
+    // --- Change log ---
+    /**
+     * Durable record of every committed student, mark and attendance write, tailed with ChangeFeed.
+     * Returns up to limit events with seq above afterSeq, oldest first.
+     */
+    List<ChangeEvent> readChanges(long afterSeq, int limit) throws SQLException;
+    /** Seq of the newest committed change, or 0 if nothing was ever logged. */
+    long getLastChangeSeq() throws SQLException;
+    /** Drops events up to and including throughSeq, once every consumer is past them; returns how many. */
+    int pruneChanges(long throughSeq) throws SQLException;
+    /**
+     * Random id chosen when the database was created, so a change seq saved elsewhere (e.g. in a
+     * SnapshotFile) is never read against a different database whose log happens to reach as far.
+     */
+    long getDatabaseId();
+
+    // --- Students ---
+    /** Inserts the student with an empty attendance record and sets the generated id on s. */
+    int insertStudent(Student s) throws SQLException;
+    boolean updateStudent(Student s) throws SQLException;
+    /** Deletes the student together with their marks and attendance. */
+    boolean deleteStudent(int id) throws SQLException;
+    Student getStudentById(int id) throws SQLException;
+    Student getStudentByRoll(String roll) throws SQLException;
+
+    default List<Student> searchStudentsByName(String query) throws SQLException {
+        return searchStudentsByName(query, -1);
+    }
+
+    /**
+     * Case-insensitive substring search over names. Exact matches rank first, then name prefixes,
+     * then word prefixes, then other substrings; ties are ordered by name. A negative limit returns
+     * every match.
+     */
+    List<Student> searchStudentsByName(String query, int limit) throws SQLException;
+
+    List<Student> getAllStudents() throws SQLException;
+
+    default List<Student> listStudentsAfter(int lastId, int pageSize) throws SQLException {
+        return listStudentsAfter(null, lastId, pageSize);
+    }
+
+    /** Keyset page: up to pageSize students with id above lastId, in id order, of one course unless null. */
+    List<Student> listStudentsAfter(String course, int lastId, int pageSize) throws SQLException;
+
+    // --- Subjects ---
+    /** Returns the id for a subject name, creating the subject on first use. */
+    int ensureSubject(String name) throws SQLException;
+    /** Returns the id of an existing subject, or -1 if there is none. */
+    int findSubjectId(String name);
+    /** Returns the name for a subject id, or null if unknown. */
+    String getSubjectName(int subjectId);
+    /** Subject names in name order. */
+    List<String> listSubjects() throws SQLException;
+
+    // --- Marks ---
+    /** Creates the subject if needed and sets the mark, committing both together. */
+    void upsertMark(int studentId, String subjectName, double marks) throws SQLException;
+    void upsertMark(int studentId, int subjectId, double marks) throws SQLException;
+    boolean deleteMark(int studentId, String subjectName) throws SQLException;
+    /** Subject name -> mark, ordered by subject name. */
+    Map<String, Double> getMarksForStudent(int studentId) throws SQLException;
+    /** Resets into and fills it with the student's marks by subject id, without going through subject names. */
+    Performance readMarks(int studentId, Performance into) throws SQLException;
+
+    // --- Terms ---
+    /**
+     * Closes the open term under name: its marks are archived as that term, kept apart from the live
+     * marks, and the next term starts with none. Students, subjects and attendance carry over.
+     * One transaction over every mark of the term: other writers wait for all of it, so close large
+     * terms when nothing else is writing.
+     */
+    Term closeTerm(String name) throws SQLException;
+    /** Closed terms, oldest first. */
+    List<Term> listTerms() throws SQLException;
+    /** Like getMarksForStudent, for a closed term or CURRENT_TERM; IllegalArgumentException for an unknown term. */
+    Map<String, Double> getMarksForStudent(int studentId, int termId) throws SQLException;
+    /** Average mark of the student in the term, 0 when they have none there. */
+    double getPercentageForStudent(int studentId, int termId) throws SQLException;
+    /** The student's result in each term they have marks in, oldest first, the open term last. */
+    List<TermResult> getTermHistory(int studentId) throws SQLException;
+    /**
+     * Change in percentage from one term to another (either may be CURRENT_TERM) per course, in
+     * course order, followed by TermDelta.ALL for everyone; groups with no student marked in both are left out.
+     */
+    List<TermDelta> getTermDeltas(int fromTermId, int toTermId) throws SQLException;
+
+    // --- Attendance ---
+    void addAttendance(int studentId, int addPresent, int addTotal) throws SQLException;
+    /** Applies many {present, total} deltas, keyed by student id, in a single transaction. */
+    void addAttendanceBatch(Map<Integer, int[]> deltas) throws SQLException;
+    /** {present, total}; {0, 0} for an unknown student. */
+    int[] getAttendance(int studentId) throws SQLException;
+
+    // --- Bulk reads ---
+    /**
+     * Feeds the analytics snapshot: students in id order (only the given ids unless null), each
+     * followed by its marks in subject id order, all read from one consistent state.
+     */
+    void readSnapshotRows(int[] onlyIds, AnalyticsSnapshot.RowSink sink) throws SQLException;
+
+    /** Every student's result card in id order, marks ordered by subject name; returns the count. */
+    long forEachResultCard(Consumer<ResultCard> each) throws SQLException;
+
+    /** Statistics of each subject's marks, for one course or everyone (null); ordered by subject name. */
+    List<GroupStats> getSubjectStats(String course) throws SQLException;
+
+    /** Statistics of student percentages per course (students without marks count as 0%), by course. */
+    List<GroupStats> getCourseStats() throws SQLException;
+
+    /** Writes students, marks and attendance to a binary snapshot file (see SnapshotFile); returns its size. */
+    default long writeSnapshot(Path file) throws SQLException, IOException {
+        return SnapshotFile.write(this, file);
+    }
+
+    @Override
+    void close();
+}
@@ -0,0 +1,493 @@
+package src;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * REST/JSON front end over StudentManager, built on the JDK's HttpServer.
+ * Requests run on virtual threads when the JVM has them (Java 21+), otherwise on a cached pool.
+ * Reads run concurrently (SQLite is in WAL mode). Every write this server makes, including the
+ * attendance flushes that analytics and change log reads trigger and the buffer's own timed flushes,
+ * goes through one writer thread, so its requests never contend with each other for SQLite's lock.
+ * Another process writing the same database still can; that wait is bounded by busy_timeout.
+ *
+ *   GET    /students?q=&limit=          list, or name search when q is given
+ *   POST   /students                    {name, age, course, roll}
+ *   GET    /students/{id}
+ *   PUT    /students/{id}               {name?, age?, course?, roll?}
+ *   DELETE /students/{id}
+ *   GET    /students/{id}/performance
+ *   PUT    /students/{id}/marks         {subject, marks}
+ *   DELETE /students/{id}/marks/{subject}
+ *   GET    /students/{id}/attendance
+ *   POST   /students/{id}/attendance    {present, total}
+ *   GET    /students/{id}/result-card   (text/plain)
+ *   GET    /students/{id}/terms         percentage per term, oldest first, the open term last
+ *   GET    /subjects
+ *   GET    /ranking?top=N
+ *   GET    /summary
+ *   GET    /stats/subjects?course=      per-subject mark statistics, optionally for one course
+ *   GET    /stats/courses               per-course percentage statistics
+ *   GET    /changes?after=&limit=       change log events after a seq; X-Next-After is the last seq returned
+ *   GET    /terms                       closed terms
+ *   POST   /terms                       {name} closes the open term, archiving and clearing its marks
+ *   GET    /terms/deltas?from=&to=      per-course change between two terms (0, the default for to, is the open term)
+ */
+public class StudentServer implements AutoCloseable {
+    private static final int BACKLOG = 1024;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final StudentManager manager;
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> new Thread(r, "db-writer"));
+
+    public StudentServer(StudentManager manager, int port) throws IOException {
+        this.manager = manager;
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        this.requestExecutor = newRequestExecutor();
+        server.setExecutor(requestExecutor);
+        manager.getAttendanceBuffer().writeThrough(writer);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() { server.start(); }
+    public int getPort() { return server.getAddress().getPort(); }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        requestExecutor.shutdown();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Virtual-thread-per-task on Java 21+, found reflectively so the code still builds for 17. */
+    public static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    // --- Routing ---
+    private void handle(HttpExchange ex) throws IOException {
+        try {
+            String method = ex.getRequestMethod();
+            String[] path = Arrays.stream(ex.getRequestURI().getPath().split("/"))
+                    .filter(p -> !p.isEmpty()).toArray(String[]::new);
+            Map<String, String> query = parseQuery(ex.getRequestURI().getRawQuery());
+
+            if (path.length == 0) { notFound(ex); return; }
+            switch (path[0]) {
+                case "students" -> students(ex, method, path, query);
+                case "subjects" -> {
+                    requireGet(method);
+                    json(ex, 200, manager.listSubjects());
+                }
+                case "ranking" -> {
+                    requireGet(method);
+                    int top = intParam(query, "top", 10);
+                    List<Object> rows = new ArrayList<>();
+                    for (RankedStudent r : manager.getTopStudents(top)) rows.add(toJson(r));
+                    json(ex, 200, rows);
+                }
+                case "summary" -> {
+                    requireGet(method);
+                    json(ex, 200, toJson(manager.getSummaryStats(null)));
+                }
+                case "stats" -> {
+                    requireGet(method);
+                    List<GroupStats> stats;
+                    if (path.length == 2 && path[1].equals("subjects")) stats = manager.getSubjectStats(query.get("course"));
+                    else if (path.length == 2 && path[1].equals("courses")) stats = manager.getCourseStats();
+                    else { notFound(ex); return; }
+                    List<Object> rows = new ArrayList<>();
+                    for (GroupStats g : stats) rows.add(toJson(g));
+                    json(ex, 200, rows);
+                }
+                case "changes" -> {
+                    requireGet(method);
+                    long after = longParam(query, "after", 0);
+                    int limit = intParam(query, "limit", DEFAULT_PAGE_SIZE);
+                    List<Object> rows = new ArrayList<>();
+                    List<ChangeEvent> events = manager.readChanges(after, limit);
+                    for (ChangeEvent e : events) rows.add(toJson(e));
+                    long next = events.isEmpty() ? after : events.get(events.size() - 1).getSeq();
+                    ex.getResponseHeaders().set("X-Next-After", String.valueOf(next));
+                    json(ex, 200, rows);
+                }
+                case "terms" -> terms(ex, method, path, query);
+                default -> notFound(ex);
+            }
+        } catch (MethodNotAllowed e) {
+            error(ex, 405, "Method not allowed.");
+        } catch (IllegalArgumentException e) {
+            error(ex, 400, e.getMessage());
+        } catch (SQLException e) {
+            error(ex, 500, "Database error: " + e.getMessage());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalArgumentException) error(ex, 400, cause.getMessage());
+            else error(ex, 500, "Database error: " + cause.getMessage());
+        } catch (Exception e) {
+            error(ex, 500, "Unexpected error: " + e.getMessage());
+        } finally {
+            ex.close();
+        }
+    }
+
+    private void students(HttpExchange ex, String method, String[] path, Map<String, String> query) throws Exception {
+        if (path.length == 1) {
+            if (method.equals("GET")) {
+                String q = query.get("q");
+                String course = query.get("course");
+                int limit = intParam(query, "limit", -1);
+                int after = intParam(query, "after", -1);
+                List<Student> list;
+                if (q != null) {
+                    list = manager.searchByName(q, limit);
+                } else if (course == null && after < 0 && limit < 0) {
+                    list = manager.getAllStudents();
+                } else {
+                    // Keyset page; X-Next-After carries the cursor for the following page when one may exist.
+                    int pageSize = limit < 0 ? DEFAULT_PAGE_SIZE : limit;
+                    list = pageSize == 0 ? List.of() : manager.listStudentsAfter(course, Math.max(after, 0), pageSize);
+                    if (pageSize > 0 && list.size() == pageSize) {
+                        ex.getResponseHeaders().set("X-Next-After", String.valueOf(list.get(list.size() - 1).getId()));
+                    }
+                }
+                List<Object> rows = new ArrayList<>();
+                for (Student s : list) {
+                    if (limit >= 0 && rows.size() >= limit) break;
+                    rows.add(toJson(s));
+                }
+                json(ex, 200, rows);
+            } else if (method.equals("POST")) {
+                Map<String, Object> body = body(ex);
+                Student s = write(() -> manager.addStudent(
+                        str(body, "name"), integer(body, "age"), str(body, "course"), str(body, "roll")));
+                json(ex, 201, toJson(s));
+            } else {
+                throw new MethodNotAllowed();
+            }
+            return;
+        }
+
+        int id = parseId(path[1]);
+        String sub = path.length > 2 ? path[2] : "";
+        switch (sub) {
+            case "" -> {
+                switch (method) {
+                    case "GET" -> {
+                        Student s = manager.findById(id);
+                        if (s == null) notFound(ex); else json(ex, 200, toJson(s));
+                    }
+                    case "PUT" -> {
+                        Map<String, Object> body = body(ex);
+                        // Every field is optional, but one that is present must have the right type.
+                        Integer age = body.get("age") == null ? null : integer(body, "age");
+                        String name = str(body, "name"), course = str(body, "course"), roll = str(body, "roll");
+                        boolean ok = write(() -> manager.updateStudent(id, name, age, course, roll));
+                        if (ok) json(ex, 200, toJson(manager.findById(id))); else notFound(ex);
+                    }
+                    case "DELETE" -> {
+                        if (write(() -> manager.deleteStudent(id))) json(ex, 200, Map.of("deleted", id));
+                        else notFound(ex);
+                    }
+                    default -> throw new MethodNotAllowed();
+                }
+            }
+            case "performance" -> {
+                requireGet(method);
+                if (manager.findById(id) == null) { notFound(ex); return; }
+                Performance p = manager.getPerformance(id);
+                Map<String, Object> out = new LinkedHashMap<>();
+                out.put("id", id);
+                out.put("marks", p.getMarks());
+                out.put("total", p.getTotal());
+                out.put("percentage", p.getPercentage());
+                out.put("grade", p.getGrade());
+                json(ex, 200, out);
+            }
+            case "marks" -> {
+                boolean ok;
+                if (method.equals("PUT") || method.equals("POST")) {
+                    Map<String, Object> body = body(ex);
+                    ok = write(() -> manager.addOrUpdateMark(id, str(body, "subject"), num(body, "marks").doubleValue()));
+                } else if (method.equals("DELETE") && path.length > 3) {
+                    ok = write(() -> manager.deleteMark(id, path[3]));
+                } else {
+                    throw new MethodNotAllowed();
+                }
+                if (ok) json(ex, 200, Map.of("ok", true)); else notFound(ex);
+            }
+            case "attendance" -> {
+                if (method.equals("POST")) {
+                    Map<String, Object> body = body(ex);
+                    boolean ok = write(() -> manager.updateAttendance(id,
+                            integer(body, "present"), integer(body, "total")));
+                    if (!ok) { notFound(ex); return; }
+                } else if (!method.equals("GET")) {
+                    throw new MethodNotAllowed();
+                }
+                int[] at = manager.getAttendance(id);
+                Map<String, Object> out = new LinkedHashMap<>();
+                out.put("id", id);
+                out.put("present", at[0]);
+                out.put("total", at[1]);
+                out.put("percentage", at[1] == 0 ? 0.0 : (at[0] * 100.0) / at[1]);
+                json(ex, 200, out);
+            }
+            case "result-card" -> {
+                requireGet(method);
+                if (manager.findById(id) == null) { notFound(ex); return; }
+                send(ex, 200, "text/plain; charset=utf-8", manager.buildResultCard(id));
+            }
+            case "terms" -> {
+                requireGet(method);
+                if (manager.findById(id) == null) { notFound(ex); return; }
+                List<Object> rows = new ArrayList<>();
+                for (TermResult r : manager.getTermHistory(id)) rows.add(toJson(r));
+                json(ex, 200, rows);
+            }
+            default -> notFound(ex);
+        }
+    }
+
+    private void terms(HttpExchange ex, String method, String[] path, Map<String, String> query) throws Exception {
+        if (path.length == 1) {
+            if (method.equals("GET")) {
+                List<Object> rows = new ArrayList<>();
+                for (Term t : manager.listTerms()) rows.add(toJson(t));
+                json(ex, 200, rows);
+            } else if (method.equals("POST")) {
+                Map<String, Object> body = body(ex);
+                Term t = write(() -> manager.closeTerm(str(body, "name")));
+                json(ex, 201, toJson(t));
+            } else {
+                throw new MethodNotAllowed();
+            }
+        } else if (path.length == 2 && path[1].equals("deltas")) {
+            requireGet(method);
+            if (!query.containsKey("from")) throw new IllegalArgumentException("Missing query parameter: from");
+            int from = intParam(query, "from", 0);
+            int to = intParam(query, "to", StudentRepository.CURRENT_TERM);
+            List<Object> rows = new ArrayList<>();
+            for (TermDelta d : manager.getTermDeltas(from, to)) rows.add(toJson(d));
+            json(ex, 200, rows);
+        } else {
+            notFound(ex);
+        }
+    }
+
+    /** Runs a write on the single writer thread and waits for its result. */
+    private <T> T write(Callable<T> work) throws ExecutionException, InterruptedException {
+        return writer.submit(work).get();
+    }
+
+    // --- JSON mapping ---
+    static Map<String, Object> toJson(Student s) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", s.getId());
+        m.put("name", s.getName());
+        m.put("age", s.getAge());
+        m.put("course", s.getCourse());
+        m.put("roll", s.getRoll());
+        return m;
+    }
+
+    static Map<String, Object> toJson(RankedStudent r) {
+        Map<String, Object> m = toJson(r.getStudent());
+        m.put("percentage", r.getPercentage());
+        m.put("grade", r.getGrade());
+        m.put("present", r.getPresent());
+        m.put("totalDays", r.getTotal());
+        m.put("attendance", r.getAttendancePercentage());
+        return m;
+    }
+
+    static Map<String, Object> toJson(SummaryStats s) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("totalStudents", s.getTotalStudents());
+        m.put("classAverage", s.getClassAverage());
+        m.put("passCount", s.getPassCount());
+        m.put("failCount", s.getFailCount());
+        m.put("highestScorer", s.getHighestScorer() == null ? null : toJson(s.getHighestScorer()));
+        m.put("averageAttendance", s.getAverageAttendance());
+        return m;
+    }
+
+    static Map<String, Object> toJson(GroupStats g) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("group", g.getGroup());
+        m.put("count", g.getCount());
+        m.put("mean", g.getMean());
+        m.put("min", g.getMin());
+        m.put("max", g.getMax());
+        m.put("stdDev", g.getStdDev());
+        m.put("p25", g.getP25());
+        m.put("median", g.getMedian());
+        m.put("p75", g.getP75());
+        m.put("p90", g.getP90());
+        m.put("grades", g.getGradeHistogram());
+        return m;
+    }
+
+    static Map<String, Object> toJson(ChangeEvent e) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("seq", e.getSeq());
+        m.put("entity", e.getEntity().name());
+        m.put("op", e.getOp().name());
+        m.put("studentId", e.getStudentId());
+        switch (e.getEntity()) {
+            case MARK -> {
+                m.put("subjectId", e.getSubjectId());
+                m.put("mark", e.getMark());
+            }
+            case ATTENDANCE -> {
+                m.put("present", e.getPresent());
+                m.put("total", e.getTotal());
+            }
+            case STUDENT, TERM -> { }
+        }
+        m.put("changedAt", e.getChangedAt());
+        return m;
+    }
+
+    static Map<String, Object> toJson(Term t) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", t.getId());
+        m.put("name", t.getName());
+        m.put("closedAt", t.getClosedAt());
+        return m;
+    }
+
+    static Map<String, Object> toJson(TermResult r) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("termId", r.getTermId());
+        m.put("term", r.getTermName());
+        m.put("subjects", r.getSubjects());
+        m.put("total", r.getTotal());
+        m.put("percentage", r.getPercentage());
+        m.put("grade", r.getGrade());
+        return m;
+    }
+
+    static Map<String, Object> toJson(TermDelta d) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("group", d.getGroup());
+        m.put("students", d.getStudents());
+        m.put("fromAverage", d.getFromAverage());
+        m.put("toAverage", d.getToAverage());
+        m.put("meanDelta", d.getMeanDelta());
+        m.put("improved", d.getImproved());
+        m.put("declined", d.getDeclined());
+        m.put("unchanged", d.getUnchanged());
+        return m;
+    }
+
+    // --- Request helpers ---
+    private static final class MethodNotAllowed extends Exception {
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static void requireGet(String method) throws MethodNotAllowed {
+        if (!method.equals("GET")) throw new MethodNotAllowed();
+    }
+
+    private static Map<String, Object> body(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            return Json.parseObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String str(Map<String, Object> body, String key) {
+        Object v = body.get(key);
+        if (v != null && !(v instanceof String)) throw new IllegalArgumentException("Field '" + key + "' must be a string.");
+        return (String) v;
+    }
+
+    private static Number num(Map<String, Object> body, String key) {
+        Object v = body.get(key);
+        if (!(v instanceof Number n)) throw new IllegalArgumentException("Field '" + key + "' must be a number.");
+        return n;
+    }
+
+    // Rejects 20.5 or 1e12 rather than truncating them the way Number.intValue() would.
+    private static int integer(Map<String, Object> body, String key) {
+        double d = num(body, key).doubleValue();
+        if (d != Math.rint(d) || d < Integer.MIN_VALUE || d > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Field '" + key + "' must be an integer.");
+        }
+        return (int) d;
+    }
+
+    private static int parseId(String s) {
+        try { return Integer.parseInt(s); }
+        catch (NumberFormatException e) { throw new IllegalArgumentException("Invalid student id."); }
+    }
+
+    private static int intParam(Map<String, String> query, String key, int fallback) {
+        String v = query.get(key);
+        if (v == null) return fallback;
+        try { return Integer.parseInt(v); }
+        catch (NumberFormatException e) { throw new IllegalArgumentException("Parameter '" + key + "' must be an integer."); }
+    }
+
+    private static long longParam(Map<String, String> query, String key, long fallback) {
+        String v = query.get(key);
+        if (v == null) return fallback;
+        try { return Long.parseLong(v); }
+        catch (NumberFormatException e) { throw new IllegalArgumentException("Parameter '" + key + "' must be an integer."); }
+    }
+
+    private static Map<String, String> parseQuery(String raw) {
+        Map<String, String> map = new HashMap<>();
+        if (raw == null || raw.isEmpty()) return map;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String k = eq < 0 ? pair : pair.substring(0, eq);
+            String v = eq < 0 ? "" : pair.substring(eq + 1);
+            map.put(URLDecoder.decode(k, StandardCharsets.UTF_8), URLDecoder.decode(v, StandardCharsets.UTF_8));
+        }
+        return map;
+    }
+
+    // --- Responses ---
+    private static void json(HttpExchange ex, int status, Object body) throws IOException {
+        send(ex, status, "application/json; charset=utf-8", Json.write(body));
+    }
+
+    private static void notFound(HttpExchange ex) throws IOException {
+        error(ex, 404, "Not found.");
+    }
+
+    private static void error(HttpExchange ex, int status, String message) throws IOException {
+        json(ex, status, Map.of("error", message == null ? "" : message));
+    }
+
+    private static void send(HttpExchange ex, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", contentType);
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
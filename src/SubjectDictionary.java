@@ -0,0 +1,39 @@
+package src;
+
+import java.sql.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process subject name <-> id dictionary.
+ * The subjects table is tiny and only grows, so it is loaded once and kept in sync as
+ * DatabaseHelper inserts new subjects; lookups after that never touch the database.
+ */
+public class SubjectDictionary {
+    private final ConcurrentHashMap<String, Integer> idsByName = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, String> namesById = new ConcurrentHashMap<>();
+
+    void load(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT id, name FROM subjects");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) put(rs.getInt("id"), rs.getString("name"));
+        }
+    }
+
+    void put(int id, String name) {
+        idsByName.put(name, id);
+        namesById.put(id, name);
+    }
+
+    /** Returns the subject id, or -1 when no subject has that name. */
+    public int idOf(String name) {
+        Integer id = idsByName.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /** Returns the subject name for an id, or null when unknown. */
+    public String nameOf(int id) {
+        return namesById.get(id);
+    }
+
+    public int size() { return idsByName.size(); }
+}
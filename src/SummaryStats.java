@@ -0,0 +1,35 @@
+package src;
+
+/**
+ * Class-wide figures for the summary report, computed in one pass over the students.
+ */
+public class SummaryStats {
+    private final int totalStudents;
+    private final double classAverage;
+    private final long passCount;
+    private final RankedStudent highestScorer;
+    private final double averageAttendance;
+
+    public SummaryStats(int totalStudents, double classAverage, long passCount,
+                        RankedStudent highestScorer, double averageAttendance) {
+        this.totalStudents = totalStudents;
+        this.classAverage = classAverage;
+        this.passCount = passCount;
+        this.highestScorer = highestScorer;
+        this.averageAttendance = averageAttendance;
+    }
+
+    public int getTotalStudents() { return totalStudents; }
+    public double getClassAverage() { return classAverage; }
+    public long getPassCount() { return passCount; }
+    public long getFailCount() { return totalStudents - passCount; }
+    public RankedStudent getHighestScorer() { return highestScorer; }
+    public double getAverageAttendance() { return averageAttendance; }
+
+    @Override
+    public String toString() {
+        return String.format("SummaryStats{Total=%d, ClassAvg=%.2f, Pass=%d, Fail=%d, Highest=%s, AvgAttendance=%.2f}",
+                totalStudents, classAverage, passCount, getFailCount(),
+                highestScorer == null ? "N/A" : highestScorer.getName(), averageAttendance);
+    }
+}
@@ -0,0 +1,27 @@
+package src;
+
+/**
+ * A closed academic term. Its marks were archived when it was closed and no longer change;
+ * StudentRepository.CURRENT_TERM (0) stands for the open term, whose marks are the live ones.
+ */
+public class Term {
+    private final int id;
+    private final String name;
+    private final long closedAt;
+
+    public Term(int id, String name, long closedAt) {
+        this.id = id;
+        this.name = name;
+        this.closedAt = closedAt;
+    }
+
+    public int getId() { return id; }
+    public String getName() { return name; }
+    /** Epoch milliseconds of closeTerm. */
+    public long getClosedAt() { return closedAt; }
+
+    @Override
+    public String toString() {
+        return "Term[ID=" + id + ", Name=" + name + "]";
+    }
+}
@@ -0,0 +1,41 @@
+package src;
+
+/**
+ * How one group of students (a course, or "All") moved between two terms, counting only students
+ * with marks in both: average percentage in each term, the mean change in percentage points, and
+ * how many improved, declined or stayed level.
+ */
+public class TermDelta {
+    public static final String ALL = "All";
+
+    private final String group;
+    private final long students;
+    private final double fromAverage;
+    private final double toAverage;
+    private final long improved;
+    private final long declined;
+
+    public TermDelta(String group, long students, double fromAverage, double toAverage, long improved, long declined) {
+        this.group = group;
+        this.students = students;
+        this.fromAverage = fromAverage;
+        this.toAverage = toAverage;
+        this.improved = improved;
+        this.declined = declined;
+    }
+
+    public String getGroup() { return group; }
+    public long getStudents() { return students; }
+    public double getFromAverage() { return fromAverage; }
+    public double getToAverage() { return toAverage; }
+    public double getMeanDelta() { return toAverage - fromAverage; }
+    public long getImproved() { return improved; }
+    public long getDeclined() { return declined; }
+    public long getUnchanged() { return students - improved - declined; }
+
+    @Override
+    public String toString() {
+        return String.format("TermDelta[Group=%s, Students=%d, From=%.2f, To=%.2f, Delta=%+.2f, Improved=%d, Declined=%d]",
+                group, students, fromAverage, toAverage, getMeanDelta(), improved, declined);
+    }
+}
@@ -0,0 +1,32 @@
+package src;
+
+/**
+ * One student's result in one term: marks total over the subjects they were marked in, and the
+ * percentage and grade that follow from it (as for getPercentageForStudent).
+ */
+public class TermResult {
+    private final int termId;
+    private final String termName;
+    private final double total;
+    private final int subjects;
+
+    public TermResult(int termId, String termName, double total, int subjects) {
+        this.termId = termId;
+        this.termName = termName;
+        this.total = total;
+        this.subjects = subjects;
+    }
+
+    public int getTermId() { return termId; }
+    public String getTermName() { return termName; }
+    public double getTotal() { return total; }
+    public int getSubjects() { return subjects; }
+    public double getPercentage() { return subjects == 0 ? 0.0 : total / subjects; }
+    public String getGrade() { return Performance.calculateGrade(getPercentage()); }
+
+    @Override
+    public String toString() {
+        return String.format("TermResult[Term=%s, Subjects=%d, Percentage=%.2f, Grade=%s]",
+                termName, subjects, getPercentage(), getGrade());
+    }
+}
@@ -0,0 +1,101 @@
+package src;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One write transaction bound to a thread by DatabaseHelper.inTransaction. Code running inside it gets
+ * a view of the transaction's connection on which close(), commit() and setAutoCommit() do nothing and
+ * rollback() marks the transaction for rollback, so existing try-with-resources and batch code joins
+ * the transaction unchanged. Hooks registered during the transaction run once it commits or rolls back.
+ */
+final class Transaction {
+    private final Connection conn;
+    private final Connection shared;
+    private final List<Runnable> afterCommit = new ArrayList<>();
+    private final List<Runnable> onRollback = new ArrayList<>();
+    private boolean rollbackOnly;
+
+    Transaction(Connection conn) {
+        this.conn = conn;
+        this.shared = (Connection) Proxy.newProxyInstance(
+                Transaction.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "close", "commit", "setAutoCommit" -> null;
+                    case "rollback" -> {
+                        if (args == null) rollbackOnly = true;
+                        else method.invoke(conn, args);   // rollback(Savepoint) stays a real partial rollback
+                        yield null;
+                    }
+                    case "getAutoCommit" -> false;
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> {
+                        try {
+                            yield method.invoke(conn, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                });
+    }
+
+    /** The connection handed to code running inside the transaction. */
+    Connection connection() { return shared; }
+
+    void markRollbackOnly() { rollbackOnly = true; }
+    boolean isRollbackOnly() { return rollbackOnly; }
+
+    void afterCommit(Runnable action) { afterCommit.add(action); }
+    void onRollback(Runnable action) { onRollback.add(action); }
+
+    // IMMEDIATE takes the write lock up front (waiting out busy_timeout), so a unit that reads before
+    // it writes cannot fail halfway with SQLITE_BUSY when another connection committed in between.
+    void begin() throws SQLException {
+        execute("BEGIN IMMEDIATE");
+    }
+
+    void commit() throws SQLException {
+        execute("COMMIT");
+    }
+
+    /** Runs the commit hooks; only after commit() succeeded, and never followed by rollback(). */
+    void runAfterCommit() {
+        runAll(afterCommit);
+    }
+
+    /** Rolls back and runs the rollback hooks; a failure here is attached to the original error. */
+    void rollback(Throwable cause) {
+        try {
+            execute("ROLLBACK");
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+        runAll(onRollback);
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    private static void runAll(List<Runnable> actions) {
+        RuntimeException first = null;
+        for (Runnable r : actions) {
+            try {
+                r.run();
+            } catch (RuntimeException e) {
+                if (first == null) first = e;
+                else first.addSuppressed(e);
+            }
+        }
+        if (first != null) throw first;
+    }
+}
@@ -0,0 +1,74 @@
+package src;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Upgrading a students.db written by the original, unversioned schema. */
+class MigrationTest {
+    @TempDir
+    Path dir;
+
+    // The tables the first release created, which never enforced foreign keys.
+    private static final String[] BASELINE_SCHEMA = {
+        "CREATE TABLE students(id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, age INTEGER NOT NULL,"
+                + " course TEXT NOT NULL, roll TEXT NOT NULL UNIQUE)",
+        "CREATE TABLE subjects(id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL UNIQUE)",
+        "CREATE TABLE marks(id INTEGER PRIMARY KEY AUTOINCREMENT, student_id INTEGER NOT NULL, subject_id INTEGER NOT NULL,"
+                + " marks REAL NOT NULL, UNIQUE(student_id, subject_id),"
+                + " FOREIGN KEY(student_id) REFERENCES students(id) ON DELETE CASCADE,"
+                + " FOREIGN KEY(subject_id) REFERENCES subjects(id) ON DELETE CASCADE)",
+        "CREATE TABLE attendance(id INTEGER PRIMARY KEY AUTOINCREMENT, student_id INTEGER NOT NULL UNIQUE,"
+                + " present INTEGER NOT NULL DEFAULT 0, total INTEGER NOT NULL DEFAULT 0,"
+                + " FOREIGN KEY(student_id) REFERENCES students(id) ON DELETE CASCADE)"
+    };
+
+    @Test
+    void baselineDatabaseWithOrphansUpgrades() throws SQLException {
+        String url = "jdbc:sqlite:" + dir.resolve("students.db");
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement st = conn.createStatement()) {
+            for (String sql : BASELINE_SCHEMA) st.execute(sql);
+            st.execute("INSERT INTO students(id, name, age, course, roll) VALUES (1, 'Ann', 20, 'CS', 'R1')");
+            st.execute("INSERT INTO subjects(id, name) VALUES (1, 'Math'), (2, 'Art')");
+            st.execute("INSERT INTO marks(student_id, subject_id, marks) VALUES (1, 1, 80), (1, 2, 60)");
+            st.execute("INSERT INTO attendance(student_id, present, total) VALUES (1, 3, 4)");
+            // Left behind by deleting student 2 and subject 3 while foreign keys were off.
+            st.execute("INSERT INTO marks(student_id, subject_id, marks) VALUES (2, 1, 90), (1, 3, 10)");
+            st.execute("INSERT INTO attendance(student_id, present, total) VALUES (2, 5, 5)");
+        }
+
+        try (DatabaseHelper db = new DatabaseHelper(url, 2)) {
+            assertEquals(DatabaseHelper.SCHEMA_VERSION, db.getSchemaVersion());
+            assertEquals(Map.of("Art", 60.0, "Math", 80.0), db.getMarksForStudent(1));
+            assertEquals(70.0, db.getPercentageForStudent(1), 1e-9);
+            assertArrayEquals(new int[]{3, 4}, db.getAttendance(1));
+            assertEquals(0, count(url, "SELECT COUNT(*) FROM marks WHERE student_id = 2 OR subject_id = 3"));
+            assertEquals(0, count(url, "SELECT COUNT(*) FROM attendance WHERE student_id = 2"));
+            assertEquals(1, count(url, "SELECT COUNT(*) FROM student_performance"));
+
+            // Upgraded databases take new writes like fresh ones.
+            int id = db.insertStudent(new Student("Bob", 21, "EE", "R2"));
+            db.upsertMark(id, "Math", 50);
+            assertEquals(50.0, db.getPercentageForStudent(id), 1e-9);
+        }
+    }
+
+    private static long count(String url, String sql) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package src;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The StudentRepository contract, run against every engine: each test gets a fresh, empty
+ * repository of the engine it is parameterized with, and expects exactly the same behaviour.
+ */
+class StudentRepositoryTest {
+    enum Engine { SQLITE, SQLITE_MEMORY, MEMORY }
+
+    @TempDir
+    Path dir;
+    private StudentRepository db;
+
+    private StudentRepository open(Engine engine) {
+        db = switch (engine) {
+            case SQLITE -> new DatabaseHelper("jdbc:sqlite:" + dir.resolve("students.db"), 4);
+            case SQLITE_MEMORY -> DatabaseHelper.inMemory();
+            case MEMORY -> new InMemoryStudentRepository();
+        };
+        return db;
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        if (db != null) db.close();
+    }
+
+    private static Student student(String name, String course, String roll) {
+        return new Student(name, 20, course, roll);
+    }
+
+    private static List<String> names(List<Student> students) {
+        List<String> names = new ArrayList<>();
+        for (Student s : students) names.add(s.getName());
+        return names;
+    }
+
+    private static List<Integer> ids(List<Student> students) {
+        List<Integer> ids = new ArrayList<>();
+        for (Student s : students) ids.add(s.getId());
+        return ids;
+    }
+
+    // --- CRUD ---
+    @ParameterizedTest
+    @EnumSource(Engine.class)
+    void insertReadUpdateDelete(Engine engine) throws SQLException {
+        StudentRepository db = open(engine);
+        Student ann = student("Ann", "CS", "R1");
+        Student bob = student("Bob", "EE", "R2");
+        int annId = db.insertStudent(ann);
+        int bobId = db.insertStudent(bob);
+        assertEquals(annId, ann.getId());
+        assertTrue(bobId > annId, "ids increase");
+        assertArrayEquals(new int[]{0, 0}, db.getAttendance(annId));
+
+        assertEquals("Ann", db.getStudentById(annId).getName());
+        assertEquals(bobId, db.getStudentByRoll("R2").getId());
+        assertNull(db.getStudentById(bobId + 1));
+        assertNull(db.getStudentByRoll("R9"));
+        assertEquals(List.of(annId, bobId), ids(db.getAllStudents()));
+
+        Student moved = new Student(annId, "Ann Lee", 21, "Math", "R3");
+        assertTrue(db.updateStudent(moved));
+        Student read = db.getStudentById(annId);
+        assertEquals("Ann Lee", read.getName());
+        assertEquals(21, read.getAge());
+        assertEquals("Math", read.getCourse());
+        assertNull(db.getStudentByRoll("R1"));
+        assertEquals(annId, db.getStudentByRoll("R3").getId());
+        assertFalse(db.updateStudent(new Student(bobId + 1, "Nobody", 20, "CS", "R9")));
+
+        db.upsertMark(annId, "Physics", 70);
+        db.upsertMark(annId, "Math", 60);
+        db.upsertMark(annId, "Math", 65);
+        db.addAttendance(annId, 3, 4);
+        assertEquals(Map.of("Math", 65.0, "Physics", 70.0), db.getMarksForStudent(annId));
+        assertEquals(List.of("Math", "Physics"), new ArrayList<>(db.getMarksForStudent(annId).keySet()));
+        assertArrayEquals(new int[]{3, 4}, db.getAttendance(annId));
+        assertTrue(db.deleteMark(annId, "Physics"));
+        assertFalse(db.deleteMark(annId, "Physics"));
+        assertEquals(Map.of("Math", 65.0), db.getMarksForStudent(annId));
+
+        assertTrue(db.deleteStudent(annId));
+        assertFalse(db.deleteStudent(annId));
+        assertNull(db.getStudentById(annId));
+        assertTrue(db.getMarksForStudent(annId).isEmpty());
+        assertArrayEquals(new int[]{0, 0}, db.getAttendance(annId));
+        assertEquals(List.of(bobId), ids(db.getAllStudents()));
+
+        int carolId = db.insertStudent(student("Carol", "CS", "R1"));
+        assertTrue(carolId > bobId, "ids are not reused");
+    }
+
+    @ParameterizedTest
+    @EnumSource(Engine.class)
+    void markForMissingStudentFails(Engine engine) throws SQLException {
+        StudentRepository db = open(engine);
+        assertThrows(SQLException.class, () -> db.upsertMark(42, "Math", 50));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Engine.class)
+    void duplicateRollIsRejected(Engine engine) throws SQLException {
+        StudentRepository db = open(engine);
+        int annId = db.insertStudent(student("Ann", "CS", "R1"));
+        int bobId = db.insertStudent(student("Bob", "CS", "R2"));
+
+        assertThrows(SQLException.class, () -> db.insertStudent(student("Another Ann", "CS", "R1")));
+        assertThrows(SQLException.class, () -> db.updateStudent(new Student(bobId, "Bob", 20, "CS", "R1")));
+
+        assertEquals(List.of(annId, bobId), ids(db.getAllStudents()));
+        assertEquals("Bob", db.getStudentByRoll("R2").getName());
+        assertEquals(annId, db.getStudentByRoll("R1").getId());
+    }
+
+    // --- Transactions ---
+    @ParameterizedTest
+    @EnumSource(Engine.class)
+    void failedTransactionLeavesNothingBehind(Engine engine) throws SQLException {
+        StudentRepository db = open(engine);
+        int annId = db.insertStudent(student("Ann", "CS", "R1"));
+        db.upsertMark(annId, "Math", 50);
+        boolean[] hooks = new boolean[2];
+
+        assertThrows(IllegalStateException.class, () -> db.inTransaction(() -> {
+            db.insertStudent(student("Bob", "CS", "R2"));
+            db.upsertMark(annId, "Math", 90);
+            db.upsertMark(annId, "Physics", 80);
+            db.addAttendance(annId, 1, 1);
+            db.deleteStudent(annId);
+            db.afterCommit(() -> hooks[0] = true);
+            db.onRollback(() -> hooks[1] = true);
+            throw new IllegalStateException("abort");
+        }));
+
+        assertFalse(hooks[0], "afterCommit must not run");
+        assertTrue(hooks[1], "onRollback must run");
+        assertNull(db.getStudentByRoll("R2"));
+        assertEquals("Ann", db.getStudentById(annId).getName());
+        assertEquals(Map.of("Math", 50.0), db.getMarksForStudent(annId));
+        assertArrayEquals(new int[]{0, 0}, db.getAttendance(annId));
+        assertEquals(List.of(annId), ids(db.getAllStudents()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Engine.class)
+    void caughtNestedFailureStillRollsBackTheUnit(Engine engine) throws SQLException {
+        StudentRepository db = open(engine);
+        assertThrows(SQLException.class, () -> db.inTransaction(() -> {
+            db.insertStudent(student("Ann", "CS", "R1"));
+            try {
+                db.inTransaction(() -> db.insertStudent(student("Ann again", "CS", "R1")));
+            } catch (SQLException expected) {
+                // swallowed on purpose: the outer unit must still roll back
+            }
+        }));
+        assertTrue(db.getAllStudents().isEmpty());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Engine.class)
+    void committedTransactionRunsAfterCommitOnly(Engine engine) throws SQLException {
+        StudentRepository db = open(engine);
+        boolean[] hooks = new boolean[2];
+        db.inTransaction(() -> {
+            int id = db.insertStudent(student("Ann", "CS", "R1"));
+            db.upsertMark(id, "Math", 75);
+            db.afterCommit(() -> hooks[0] = true);
+            db.onRollback(() -> hooks[1] = true);
+        });
+        assertTrue(hooks[0]);
+        assertFalse(hooks[1]);
+        assertEquals(Map.of("Math", 75.0), db.getMarksForStudent(db.getStudentByRoll("R1").getId()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Engine.class)
+    void transactionSeesSubjectsItCreated(Engine engine) throws SQLException {
+        StudentRepository db = open(engine);
+        db.inTransaction(() -> {
+            int id = db.insertStudent(student("Ann", "CS", "R1"));
+            db.upsertMark(id, "Math", 70);
+            db.upsertMark(id, "Art", 60);
+            assertEquals(List.of("Art", "Math"), List.copyOf(db.getMarksForStudent(id).keySet()));
+            StringBuilder card = new StringBuilder();
+            assertEquals(1, db.forEachResultCard(c -> c.appendTo(card)));
+            assertTrue(card.toString().contains("  - Art: 60.00\n  - Math: 70.00\n"), card.toString());
+        });
+    }
+
+    // --- Search and paging ---
+    @ParameterizedTest
+    @EnumSource(Engine.class)
+    void searchRanksExactThenPrefixThenWordThenSubstring(Engine engine) throws SQLException {
+        StudentRepository db = open(engine);
+        String[] names = {"Joanne", "Lee Ann", "Bob", "Annabel Lee", "ann", "Anna"};
+        for (int i = 0; i < names.length; i++) db.insertStudent(student(names[i], "CS", "R" + i));
+
+        assertEquals(List.of("ann", "Anna", "Annabel Lee", "Lee Ann", "Joanne"), names(db.searchStudentsByName("ann")));
+        assertEquals(List.of("ann", "Anna"), names(db.searchStudentsByName("ANN", 2)));
+        assertEquals(List.of("Lee Ann", "Annabel Lee"), names(db.searchStudentsByName("lee")));
+        assertTrue(db.searchStudentsByName("zzz").isEmpty());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Engine.class)
+    void keysetPagesCoverEveryStudentOnce(Engine engine) throws SQLException {
+        StudentRepository db = open(engine);
+        List<Integer> all = new ArrayList<>();
+        List<Integer> cs = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            String course = i % 3 == 0 ? "CS" : "EE";
+            int id = db.insertStudent(student("Student " + i, course, "R" + i));
+            if (i == 7 || i == 9) {
+                db.deleteStudent(id);
+                continue;
+            }
+            all.add(id);
+            if (course.equals("CS")) cs.add(id);
+        }
+
+        assertEquals(all, page(db, null, 10));
+        assertEquals(cs, page(db, "CS", 4));
+        assertEquals(all.subList(0, 5), ids(db.listStudentsAfter(0, 5)));
+        assertTrue(db.listStudentsAfter(all.get(all.size() - 1), 10).isEmpty());
+        assertTrue(db.listStudentsAfter("Nope", 0, 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> db.listStudentsAfter(0, 0));
+    }
+
+    private static List<Integer> page(StudentRepository db, String course, int size) throws SQLException {
+        List<Integer> seen = new ArrayList<>();
+        int lastId = 0;
+        while (true) {
+            List<Student> page = db.listStudentsAfter(course, lastId, size);
+            assertTrue(page.size() <= size);
+            seen.addAll(ids(page));
+            if (page.size() < size) return seen;
+            lastId = page.get(page.size() - 1).getId();
+        }
+    }
+
+    // --- Statistics ---
+    @ParameterizedTest
+    @EnumSource(Engine.class)
+    void subjectAndCourseStatistics(Engine engine) throws SQLException {
+        StudentRepository db = open(engine);
+        int a = db.insertStudent(student("A", "CS", "R1"));
+        int b = db.insertStudent(student("B", "CS", "R2"));
+        int c = db.insertStudent(student("C", "EE", "R3"));
+        db.insertStudent(student("D", "EE", "R4"));
+        db.upsertMark(a, "Math", 40);
+        db.upsertMark(b, "Math", 60);
+        db.upsertMark(c, "Math", 80);
+        db.upsertMark(a, "Physics", 90);
+        db.upsertMark(c, "Physics", 100);
+
+        List<GroupStats> subjects = db.getSubjectStats(null);
+        assertEquals(List.of("Math", "Physics"), subjects.stream().map(GroupStats::getGroup).toList());
+        GroupStats math = subjects.get(0);
+        assertEquals(3, math.getCount());
+        assertEquals(60.0, math.getMean(), 1e-9);
+        assertEquals(40.0, math.getMin(), 1e-9);
+        assertEquals(80.0, math.getMax(), 1e-9);
+        assertEquals(60.0, math.getMedian(), 1e-9);
+        assertEquals(Map.of("A+", 0L, "A", 1L, "B+", 0L, "B", 1L, "C", 0L, "F", 1L), math.getGradeHistogram());
+        assertEquals(95.0, subjects.get(1).getMean(), 1e-9);
+
+        List<GroupStats> csOnly = db.getSubjectStats("CS");
+        assertEquals(2, csOnly.get(0).getCount());
+        assertEquals(50.0, csOnly.get(0).getMean(), 1e-9);
+        assertEquals(1, csOnly.get(1).getCount());
+
+        // Percentages: A 65, B 60, C 90, D (no marks) 0.
+        List<GroupStats> courses = db.getCourseStats();
+        assertEquals(List.of("CS", "EE"), courses.stream().map(GroupStats::getGroup).toList());
+        assertEquals(62.5, courses.get(0).getMean(), 1e-9);
+        assertEquals(2, courses.get(1).getCount());
+        assertEquals(45.0, courses.get(1).getMean(), 1e-9);
+        assertEquals(0.0, courses.get(1).getMin(), 1e-9);
+    }
+
+    // --- Change log ---
+    @ParameterizedTest
+    @EnumSource(Engine.class)
+    void changeFeedDetectsPrunedEventsEvenFromTheStart(Engine engine) throws SQLException {
+        StudentRepository db = open(engine);
+        for (int i = 0; i < 3; i++) db.insertStudent(student("S" + i, "CS", "R" + i));
+        List<ChangeEvent> seen = new ArrayList<>();
+        assertEquals(3, new ChangeFeed(db, 0).poll(seen::add));
+        assertEquals(List.of(1L, 2L, 3L), seen.stream().map(ChangeEvent::getSeq).toList());
+
+        assertEquals(2, db.pruneChanges(2));
+        assertThrows(IllegalStateException.class, () -> new ChangeFeed(db, 0).poll(e -> { }));
+        assertThrows(IllegalStateException.class, () -> new ChangeFeed(db, 1).poll(e -> { }));
+        assertEquals(1, new ChangeFeed(db, 2).poll(e -> { }));
+    }
+}